@@ -0,0 +1,142 @@
+package Bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.AccountDAO;
+import Model.Account;
+import Model.AccountImportProgress;
+import Model.AccountImportReject;
+import Service.AccountImporter;
+import Service.AccountService;
+import Service.PasswordVerifier;
+import Util.PasswordHasher;
+
+/**
+ * Registering `accounts` new accounts into an empty table, one at a time the way POST /register does (a lookup,
+ * then an insert, each on its own connection), against AccountImporter reading the same accounts as NDJSON in
+ * chunks. The NDJSON is generated as it is read, so the importer's memory use is all that is measured.
+ *
+ * PBKDF2 runs at a low cost here; at the production cost hashing dominates both paths and the import mostly wins
+ * by hashing on several cores at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountImportBenchmark {
+
+    @Param({"10000"})
+    public int accounts;
+
+    @Param({"100", "1000"})
+    public int chunkSize;
+
+    @Param({"1000"})
+    public int iterations;
+
+    private PasswordVerifier passwordVerifier;
+    private AccountService accountService;
+    private AccountImporter importer;
+
+    @Setup(Level.Trial)
+    public void start() {
+        passwordVerifier = new PasswordVerifier(new PasswordHasher(iterations),
+                PasswordVerifier.THREADS, PasswordVerifier.QUEUE_CAPACITY, 0);
+        accountService = new AccountService(new AccountDAO(), passwordVerifier);
+        importer = new AccountImporter(new AccountDAO(), passwordVerifier, chunkSize, PasswordVerifier.THREADS);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() throws SQLException {
+        BenchDatabase.seed(0, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        passwordVerifier.close();
+    }
+
+    @Benchmark
+    public int registerOneByOne() throws SQLException {
+        int created = 0;
+        for (int i = 0; i < accounts; i++) {
+            Account account = new Account(BenchDatabase.username(i), "password" + i);
+            if (accountService.getAccountByUsername(account.getUsername()) == null) {
+                accountService.registerUser(account);
+                created++;
+            }
+        }
+        return created;
+    }
+
+    @Benchmark
+    public long importNdjson() throws IOException {
+        AccountImportProgress progress = importer.importAccounts(
+                AccountImporter.open(new GeneratedNdjson(accounts), AccountImporter.NDJSON),
+                new AccountImporter.Listener() {
+                    @Override
+                    public void rejected(AccountImportReject reject) {
+                        throw new IllegalStateException(reject.toString());
+                    }
+
+                    @Override
+                    public void progress(AccountImportProgress progress) {
+                    }
+                });
+        if (!progress.isComplete()) {
+            throw new IllegalStateException(progress.getError());
+        }
+        return progress.getImported();
+    }
+
+    // accounts lines of NDJSON, produced as they are read
+    private static final class GeneratedNdjson extends Reader {
+        private final int accounts;
+        private int next;
+        private String line = "";
+        private int position;
+
+        GeneratedNdjson(int accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == line.length()) {
+                if (next == accounts) {
+                    return -1;
+                }
+                line = "{\"username\":\"" + BenchDatabase.username(next) + "\",\"password\":\"password" + next + "\"}\n";
+                next++;
+                position = 0;
+            }
+            int count = Math.min(length, line.length() - position);
+            line.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
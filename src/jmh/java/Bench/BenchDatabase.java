@@ -0,0 +1,108 @@
+package Bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import Util.ConnectionUtil;
+
+/**
+ * Database fixtures shared by the benchmarks. Benchmarks run against their own H2 database (bench.db.url,
+ * default ./h2/bench) so they never touch the one the tests and the application use.
+ */
+public final class BenchDatabase {
+
+    static {
+        // must run before ConnectionUtil is first touched, since it reads the url when its pool is built
+        System.setProperty("socialmedia.db.url", System.getProperty("bench.db.url", "jdbc:h2:./h2/bench;"));
+    }
+
+    // rows per JDBC batch while seeding
+    private static final int SEED_BATCH = 5_000;
+
+    // time_posted_epoch of the first seeded message
+    public static final long EPOCH_START = 1_669_947_792L;
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * Recreate the schema and fill it with accounts user0..user{accounts-1} (password "password"), each with
+     * messagesPerAccount messages. Messages are inserted round-robin across accounts, so each account's messages
+     * are spread over the whole id range the way they would be in real traffic; time_posted_epoch increases with
+     * message_id starting at {@link #EPOCH_START}.
+     */
+    public static void seed(int accounts, int messagesPerAccount) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection conn = ConnectionUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO Account (username, password) VALUES (?, ?)")) {
+                // account 1 (testuser1) comes from SocialMedia.sql, so generated ids are 2..accounts+1
+                for (int i = 0; i < accounts; i++) {
+                    ps.setString(1, username(i));
+                    ps.setString(2, "password");
+                    ps.addBatch();
+                    if ((i + 1) % SEED_BATCH == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO Message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)")) {
+                long total = (long) accounts * messagesPerAccount;
+                for (long i = 0; i < total; i++) {
+                    ps.setInt(1, accountId((int) (i % accounts)));
+                    ps.setString(2, "benchmark message " + i + " lorem ipsum dolor sit amet");
+                    ps.setLong(3, EPOCH_START + i);
+                    ps.addBatch();
+                    if ((i + 1) % SEED_BATCH == 0) {
+                        ps.executeBatch();
+                        conn.commit();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    /**
+     * Like {@link #seed}, but leaves the database alone when it already holds exactly that many accounts and
+     * messages, so a large data set is only paid for once across trials and runs. A benchmark that changes the
+     * schema has to put it back itself.
+     */
+    public static void seedIfNeeded(int accounts, int messagesPerAccount) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT (SELECT COUNT(*) FROM Account), (SELECT COUNT(*) FROM Message)")) {
+            rs.next();
+            // SocialMedia.sql adds one account and one message of its own
+            if (rs.getLong(1) == accounts + 1L && rs.getLong(2) == (long) accounts * messagesPerAccount + 1) {
+                return;
+            }
+        } catch (SQLException e) {
+            // no schema yet
+        }
+        seed(accounts, messagesPerAccount);
+    }
+
+    // username of the i-th seeded account
+    public static String username(int i) {
+        return "user" + i;
+    }
+
+    // account_id of the i-th seeded account
+    public static int accountId(int i) {
+        return i + 2;
+    }
+
+    // message_id of the n-th seeded message (0-based); message 1 comes from SocialMedia.sql
+    public static int messageId(long n) {
+        return (int) (n + 2);
+    }
+}
@@ -0,0 +1,48 @@
+package Bench;
+
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs every benchmark once, on tiny fixtures and for a fraction of a second, so a change that breaks a benchmark's
+ * setup or the code path it switches on shows up in `mvn -P jmh test` rather than halfway through a long run. The
+ * numbers are meaningless; each benchmark still gets its own JVM so it uses the bench database, not the test one.
+ */
+public class BenchmarkSmokeTest {
+
+    @Test
+    public void everyBenchmarkRuns() throws Exception {
+        Options options = new OptionsBuilder()
+                .include("Bench\\..*Benchmark")
+                .forks(1)
+                .threads(1)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(100))
+                .shouldFailOnError(true)
+                // fixtures small enough to seed in well under a second
+                .param("accounts", "10")
+                .param("messagesPerAccount", "10")
+                .param("listingSize", "100")
+                .param("chunkSize", "100")
+                .param("window", "10")
+                .param("connections", "10")
+                // PBKDF2 at a single iteration; hashing cost is not what is being checked
+                .param("iterations", "1")
+                .param("verifiedTtlSeconds", "0")
+                .param("level", "1")
+                .param("query", "lorem")
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        Assert.assertFalse(results.isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package Bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Message;
+import Util.JsonCodec;
+import Util.ResponseCompression;
+
+/**
+ * Bytes on the wire against CPU for a serialized message listing, per encoding and level. The score is listings
+ * compressed per second on one core; the rawBytes and wireBytes counters are the bytes per second going in and
+ * coming out, so wireBytes / rawBytes is the compression ratio. Encoding "none" is the uncompressed baseline, which
+ * is also about what serving a cached compressed listing costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"100", "10000"})
+    public int listingSize;
+
+    @Param({"none", "gzip", "deflate"})
+    public String encoding;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private ResponseCompression compression;
+    private byte[] listingJson;
+
+    // bytes before and after compression
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long rawBytes;
+        public long wireBytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            rawBytes = 0;
+            wireBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        compression = new ResponseCompression(List.of(ResponseCompression.GZIP, ResponseCompression.DEFLATE), level,
+                0, 0, 0);
+        List<Message> listing = new ArrayList<>(listingSize);
+        for (int i = 0; i < listingSize; i++) {
+            listing.add(new Message(i + 1, i % 100 + 2, "benchmark message " + i + " lorem ipsum dolor sit amet",
+                    BenchDatabase.EPOCH_START + i));
+        }
+        listingJson = JsonCodec.MAPPER.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public long compress(Bytes bytes) throws IOException {
+        CountingStream wire = new CountingStream();
+        try (OutputStream out = encoding.equals("none") ? wire : compression.compressor(wire, encoding)) {
+            out.write(listingJson);
+        }
+        bytes.rawBytes += listingJson.length;
+        bytes.wireBytes += wire.count;
+        return wire.count;
+    }
+
+    // discards what is written, keeping only the count
+    private static class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
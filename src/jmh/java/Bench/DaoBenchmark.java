@@ -0,0 +1,105 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.AccountDAO;
+import DAO.MessageCursor;
+import DAO.MessageDAO;
+import Model.Account;
+import Model.Message;
+
+/**
+ * Latency of the individual DAO operations against a seeded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10", "100"})
+    public int messagesPerAccount;
+
+    private final MessageDAO messageDAO = new MessageDAO();
+    private final AccountDAO accountDAO = new AccountDAO();
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(accounts, messagesPerAccount);
+    }
+
+    @Benchmark
+    public Message getMessageById() throws SQLException {
+        return messageDAO.getMessageById(BenchDatabase.messageId(randomMessage()));
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByUserId() throws SQLException {
+        return messageDAO.getMessagesByUserId(BenchDatabase.accountId(randomAccount()));
+    }
+
+    @Benchmark
+    public List<Message> getMessagesAfter() throws SQLException {
+        return messageDAO.getMessagesAfter(BenchDatabase.messageId(randomMessage()), 50);
+    }
+
+    @Benchmark
+    public void streamMessagesByUserId(Blackhole blackhole) throws SQLException {
+        try (MessageCursor cursor = messageDAO.openMessagesByUserId(BenchDatabase.accountId(randomAccount()))) {
+            Message message;
+            while ((message = cursor.next()) != null) {
+                blackhole.consume(message);
+            }
+        }
+    }
+
+    @Benchmark
+    public Message createMessage() throws SQLException {
+        return messageDAO.createMessage(new Message(BenchDatabase.accountId(randomAccount()), "benchmark insert", 1L));
+    }
+
+    @Benchmark
+    public Message updateMessage() throws SQLException {
+        return messageDAO.updateMessage(BenchDatabase.messageId(randomMessage()), "benchmark update");
+    }
+
+    @Benchmark
+    public Account getAccountById() throws SQLException {
+        return accountDAO.getAccountById(BenchDatabase.accountId(randomAccount()));
+    }
+
+    @Benchmark
+    public Account getAccountByUsername() throws SQLException {
+        return accountDAO.getAccountByUsername(BenchDatabase.username(randomAccount()));
+    }
+
+    private int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(accounts);
+    }
+
+    private long randomMessage() {
+        return ThreadLocalRandom.current().nextLong((long) accounts * messagesPerAccount);
+    }
+}
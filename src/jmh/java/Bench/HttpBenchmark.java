@@ -0,0 +1,130 @@
+package Bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Controller.SocialMediaController;
+import io.javalin.Javalin;
+
+/**
+ * End-to-end throughput of each route in SocialMediaController.startAPI(), over real HTTP on localhost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HttpBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int messagesPerAccount;
+
+    private final AtomicLong registrations = new AtomicLong();
+    private Javalin app;
+    private HttpClient webClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        BenchDatabase.seed(accounts, messagesPerAccount);
+        app = new SocialMediaController().startAPI().start(0);
+        baseUrl = "http://localhost:" + app.port();
+        webClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        app.stop();
+    }
+
+    @Benchmark
+    public int register() throws IOException, InterruptedException {
+        return post("/register", "{\"username\":\"bench" + registrations.incrementAndGet() + "\",\"password\":\"password\"}");
+    }
+
+    @Benchmark
+    public int login() throws IOException, InterruptedException {
+        return post("/login", "{\"username\":\"" + BenchDatabase.username(randomAccount()) + "\",\"password\":\"password\"}");
+    }
+
+    @Benchmark
+    public int createMessage() throws IOException, InterruptedException {
+        return post("/messages", "{\"posted_by\":" + BenchDatabase.accountId(randomAccount()) +
+                ",\"message_text\":\"benchmark insert\",\"time_posted_epoch\":1}");
+    }
+
+    @Benchmark
+    public int getAllMessagesPage() throws IOException, InterruptedException {
+        return get("/messages?after=" + BenchDatabase.messageId(randomMessage()) + "&limit=50");
+    }
+
+    @Benchmark
+    public int getMessageById() throws IOException, InterruptedException {
+        return get("/messages/" + BenchDatabase.messageId(randomMessage()));
+    }
+
+    @Benchmark
+    public int getMessagesByUser() throws IOException, InterruptedException {
+        return get("/accounts/" + BenchDatabase.accountId(randomAccount()) + "/messages");
+    }
+
+    @Benchmark
+    public int updateMessage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + BenchDatabase.messageId(randomMessage())))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"benchmark update\"}")));
+    }
+
+    @Benchmark
+    public int deleteMissingMessage() throws IOException, InterruptedException {
+        // deleting an id that does not exist keeps the table stable across iterations; DELETE is idempotent
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + Integer.MAX_VALUE)).DELETE());
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+    }
+
+    private int post(String path, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        return response.statusCode() + response.body().length;
+    }
+
+    private int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(accounts);
+    }
+
+    private long randomMessage() {
+        return ThreadLocalRandom.current().nextLong((long) accounts * messagesPerAccount);
+    }
+}
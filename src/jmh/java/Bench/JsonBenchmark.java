@@ -0,0 +1,115 @@
+package Bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Jackson (de)serialization of the model classes, single objects and listings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"100"})
+    public int listingSize;
+
+    // the application's shared mapper with Blackbird, or a plain reflective ObjectMapper
+    @Param({"true", "false"})
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private final TypeReference<List<Message>> messageList = new TypeReference<List<Message>>(){};
+
+    private Message message;
+    private Account account;
+    private List<Message> listing;
+    private String messageJson;
+    private String accountJson;
+    private String listingJson;
+    private byte[] patchBody;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = blackbird ? JsonCodec.MAPPER : new ObjectMapper();
+        message = new Message(42, 7, "benchmark message lorem ipsum dolor sit amet", BenchDatabase.EPOCH_START);
+        account = new Account(7, "user7", "password");
+        listing = new ArrayList<>(listingSize);
+        for (int i = 0; i < listingSize; i++) {
+            listing.add(new Message(i + 1, i % 10, "benchmark message " + i, BenchDatabase.EPOCH_START + i));
+        }
+        messageJson = objectMapper.writeValueAsString(message);
+        accountJson = objectMapper.writeValueAsString(account);
+        listingJson = objectMapper.writeValueAsString(listing);
+        patchBody = "{\"message_text\":\"updated text\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String writeMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public Message readMessage() throws JsonProcessingException {
+        return objectMapper.readValue(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public String writeAccount() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public Account readAccount() throws JsonProcessingException {
+        return objectMapper.readValue(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public String writeListing() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(listing);
+    }
+
+    @Benchmark
+    public List<Message> readListing() throws JsonProcessingException {
+        return objectMapper.readValue(listingJson, messageList);
+    }
+
+    // how PATCH used to read message_text: a fresh mapper and a full tree per request
+    @Benchmark
+    public String readPatchTextTree() throws IOException {
+        return new ObjectMapper().readTree(patchBody).get("message_text").asText();
+    }
+
+    // how PATCH reads message_text now: one pass of the streaming parser, no tree
+    @Benchmark
+    public String readPatchTextStreaming() throws IOException {
+        return JsonCodec.readTextField(new ByteArrayInputStream(patchBody), "message_text");
+    }
+}
@@ -0,0 +1,76 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.CachingAccountDAO;
+import Model.Account;
+import Service.AccountService;
+import Service.PasswordVerifier;
+import Util.PasswordHasher;
+
+/**
+ * Login throughput at each PBKDF2 cost, with and without the recent-verification cache, from more client threads
+ * than the hashing pool has. Every account is logged in once during setup so its stored password is already a hash
+ * at the benchmarked cost and no rehashing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class LoginBenchmark {
+
+    @Param({"10000", "100000", "600000"})
+    public int iterations;
+
+    // seconds a verification is remembered; 0 hashes on every login
+    @Param({"0", "300"})
+    public long verifiedTtlSeconds;
+
+    @Param({"200"})
+    public int accounts;
+
+    private PasswordVerifier passwordVerifier;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(accounts, 0);
+        passwordVerifier = new PasswordVerifier(new PasswordHasher(iterations),
+                PasswordVerifier.THREADS, PasswordVerifier.QUEUE_CAPACITY, verifiedTtlSeconds);
+        accountService = new AccountService(new CachingAccountDAO(), passwordVerifier);
+        for (int i = 0; i < accounts; i++) {
+            accountService.loginUser(new Account(BenchDatabase.username(i), "password")).join();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        passwordVerifier.close();
+    }
+
+    @Benchmark
+    public Account loginUser() throws SQLException {
+        int i = ThreadLocalRandom.current().nextInt(accounts);
+        return accountService.loginUser(new Account(BenchDatabase.username(i), "password")).join();
+    }
+}
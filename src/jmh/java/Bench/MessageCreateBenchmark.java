@@ -0,0 +1,82 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.AccountDAO;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Service.MessageWriteBuffer;
+
+/**
+ * Cost of one POST /messages below the HTTP layer, under concurrent writers:
+ *
+ * precheck    - the old path: author lookup in the controller, again in the service, then the INSERT
+ * fkOnly      - a single INSERT, with the foreign key rejecting unknown authors
+ * groupCommit - fkOnly, but queued through MessageWriteBuffer and committed in batches
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MessageCreateBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"precheck", "fkOnly", "groupCommit"})
+    public String path;
+
+    private final AccountDAO accountDAO = new AccountDAO();
+    private final MessageDAO messageDAO = new MessageDAO();
+    private MessageService messageService;
+    private MessageWriteBuffer writeBuffer;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(accounts, 0);
+        writeBuffer = "groupCommit".equals(path) ? new MessageWriteBuffer(messageDAO) : null;
+        messageService = new MessageService(messageDAO, writeBuffer);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (writeBuffer != null) {
+            writeBuffer.close();
+        }
+    }
+
+    @Benchmark
+    public Message createMessage() throws SQLException {
+        Message message = new Message(BenchDatabase.accountId(ThreadLocalRandom.current().nextInt(accounts)),
+                "benchmark insert", 1L);
+        if ("precheck".equals(path)) {
+            if (accountDAO.getAccountById(message.getPosted_by()) == null
+                    || accountDAO.getAccountById(message.getPosted_by()) == null) {
+                throw new IllegalStateException("seeded account missing");
+            }
+            return messageDAO.createMessage(message);
+        }
+        return messageService.createMessage(message);
+    }
+}
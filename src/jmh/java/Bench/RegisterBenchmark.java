@@ -0,0 +1,89 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.CachingAccountDAO;
+import Model.Account;
+import Service.AccountService;
+import Service.PasswordVerifier;
+import Util.PasswordHasher;
+
+/**
+ * Registrations per second from many client threads, each under a fresh username. `register` is the current path,
+ * one insert that the unique index on username accepts or rejects. `checkThenRegister` adds the username lookup the
+ * controller used to make first. `registerTaken` registers a name that already exists but that the account cache
+ * has not seen, which costs a password hash and a failed insert; one the cache holds is refused before the hash.
+ *
+ * PBKDF2 runs at a low cost by default, so the database work is what is compared; at the production cost the
+ * hash dominates all three.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class RegisterBenchmark {
+
+    @Param({"1"})
+    public int iterations;
+
+    private final AtomicLong next = new AtomicLong();
+    private PasswordVerifier passwordVerifier;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(1, 0);
+        passwordVerifier = new PasswordVerifier(new PasswordHasher(iterations),
+                PasswordVerifier.THREADS, PasswordVerifier.QUEUE_CAPACITY, 0);
+        accountService = new AccountService(new CachingAccountDAO(), passwordVerifier);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        passwordVerifier.close();
+    }
+
+    @Benchmark
+    public Account register() throws SQLException {
+        return accountService.registerUser(new Account("register" + next.incrementAndGet(), "password"));
+    }
+
+    @Benchmark
+    public Account checkThenRegister() throws SQLException {
+        Account account = new Account("register" + next.incrementAndGet(), "password");
+        if (accountService.getAccountByUsername(account.getUsername()) != null) {
+            return null;
+        }
+        return accountService.registerUser(account);
+    }
+
+    @Benchmark
+    public boolean registerTaken() throws SQLException {
+        try {
+            accountService.registerUser(new Account(BenchDatabase.username(0), "password"));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Service.SearchIndex;
+
+/**
+ * Top-k search answered from the inverted index against the same search as a LIKE scan in H2, over a seeded
+ * table (1M messages by default). The queries cover a word in every message, two such words, a word in exactly
+ * one message, and a word in none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"1000"})
+    public int messagesPerAccount;
+
+    @Param({"lorem", "ipsum amet", "500000", "absent"})
+    public String query;
+
+    @Param({"20"})
+    public int limit;
+
+    private final MessageDAO messageDAO = new MessageDAO();
+    private MessageService messageService;
+    private List<String> terms;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(accounts, messagesPerAccount);
+        messageService = new MessageService(messageDAO, null, null, null, new SearchIndex());
+        messageService.rebuildSearchIndex();
+        terms = SearchIndex.terms(query);
+    }
+
+    @Benchmark
+    public List<Message> index() throws SQLException {
+        return messageService.searchMessages(query, limit);
+    }
+
+    @Benchmark
+    public List<Message> likeScan() throws SQLException {
+        return messageDAO.searchMessages(terms, limit);
+    }
+}
@@ -0,0 +1,87 @@
+package Bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Controller.SocialMediaController;
+import io.javalin.Javalin;
+
+/**
+ * Load test comparing platform-thread and virtual-thread request execution. Each invocation opens `connections`
+ * concurrent HTTP/1.1 requests against DB-backed routes and waits for all of them, so the score is the time to
+ * drain one burst of that many simultaneous clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ServerThreadsBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000", "2000"})
+    public int connections;
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int messagesPerAccount;
+
+    private Javalin app;
+    private HttpClient webClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() throws SQLException {
+        BenchDatabase.seed(accounts, messagesPerAccount);
+        System.setProperty("socialmedia.server.threads", threads);
+        app = new SocialMediaController().startAPI().start(0);
+        baseUrl = "http://localhost:" + app.port();
+        webClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        app.stop();
+    }
+
+    @Benchmark
+    public int burst() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            // mostly point reads with some per-user listings, all of them going to the database
+            String path = i % 4 == 0
+                    ? "/accounts/" + BenchDatabase.accountId(random.nextInt(accounts)) + "/messages"
+                    : "/messages/" + BenchDatabase.messageId(random.nextLong((long) accounts * messagesPerAccount));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+            responses[i] = webClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,98 @@
+package Bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.AccountDAO;
+import DAO.CachingAccountDAO;
+import DAO.MessageDAO;
+import Model.Account;
+import Model.Message;
+import Model.MessagePage;
+import Service.AccountService;
+import Service.MessageService;
+
+/**
+ * Latency of the service-layer paths the controller calls, with and without the account cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int messagesPerAccount;
+
+    @Param({"true", "false"})
+    public boolean accountCache;
+
+    private AccountService accountService;
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seed(accounts, messagesPerAccount);
+        AccountDAO accountDAO = accountCache ? new CachingAccountDAO() : new AccountDAO();
+        accountService = new AccountService(accountDAO);
+        messageService = new MessageService(new MessageDAO());
+    }
+
+    @Benchmark
+    public Account loginUser() throws SQLException {
+        int i = randomAccount();
+        return accountService.loginUser(new Account(BenchDatabase.username(i), "password")).join();
+    }
+
+    @Benchmark
+    public Account getAccountById() throws SQLException {
+        return accountService.getAccountById(BenchDatabase.accountId(randomAccount()));
+    }
+
+    @Benchmark
+    public Message createMessage() throws SQLException {
+        return messageService.createMessage(new Message(BenchDatabase.accountId(randomAccount()), "benchmark insert", 1L));
+    }
+
+    @Benchmark
+    public Message getMessageById() throws SQLException {
+        return messageService.getMessageById(BenchDatabase.messageId(randomMessage()));
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPage() throws SQLException {
+        return messageService.getMessagesPage(BenchDatabase.messageId(randomMessage()), 50);
+    }
+
+    @Benchmark
+    public MessagePage getMessagesPageByUserId() throws SQLException {
+        return messageService.getMessagesPageByUserId(BenchDatabase.accountId(randomAccount()), 0, 50);
+    }
+
+    private int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(accounts);
+    }
+
+    private long randomMessage() {
+        return ThreadLocalRandom.current().nextLong((long) accounts * messagesPerAccount);
+    }
+}
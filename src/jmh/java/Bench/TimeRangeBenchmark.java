@@ -0,0 +1,138 @@
+package Bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DAO.MessageCursor;
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionUtil;
+
+/**
+ * Time-range listings over a large table (10M messages by default), with and without the time_posted_epoch range
+ * indexes. With them, the MessageDAO cursors are measured, which read the range straight off the index in order.
+ * Without them the same query is left to H2's planner, which has a full scan (or the posted_by index) and a sort.
+ * Each operation streams one window of about `window` messages from the middle of the table, or the same span of
+ * time for a single account.
+ *
+ * The data set is kept between runs (see BenchDatabase.seedIfNeeded); the indexes are dropped for the unindexed
+ * trials, along with their migration's schema_version entry, and recreated by the migrations for the indexed ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TimeRangeBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10000"})
+    public int messagesPerAccount;
+
+    @Param({"1000"})
+    public int window;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private final MessageDAO messageDAO = new MessageDAO();
+    private long since;
+    private long until;
+    private long accountUntil;
+    private int accountId;
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        BenchDatabase.seedIfNeeded(accounts, messagesPerAccount);
+        ConnectionUtil.migrate();
+        if (!indexed) {
+            try (Connection conn = ConnectionUtil.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP INDEX IF EXISTS idx_message_time_posted_id");
+                stmt.execute("DROP INDEX IF EXISTS idx_message_posted_by_time");
+                // so the next indexed trial's migrate() creates them again
+                stmt.execute("DELETE FROM schema_version WHERE script = 'migrations/002_message_time_indexes.sql'");
+            }
+        }
+        long total = (long) accounts * messagesPerAccount;
+        since = BenchDatabase.EPOCH_START + total / 2;
+        until = since + window;
+        // messages are spread round-robin across accounts, so one account needs a span accounts times as wide
+        accountUntil = since + (long) window * accounts;
+        accountId = BenchDatabase.accountId(accounts / 2);
+    }
+
+    @Benchmark
+    public void range(Blackhole blackhole) throws SQLException {
+        if (indexed) {
+            drain(messageDAO.openMessagesInRange(since, until), blackhole);
+        } else {
+            scan("SELECT * FROM Message WHERE time_posted_epoch >= ? AND time_posted_epoch < ?"
+                    + " ORDER BY time_posted_epoch, message_id", blackhole, since, until);
+        }
+    }
+
+    @Benchmark
+    public void rangeByUser(Blackhole blackhole) throws SQLException {
+        if (indexed) {
+            drain(messageDAO.openMessagesByUserIdInRange(accountId, since, accountUntil), blackhole);
+        } else {
+            scan("SELECT * FROM Message WHERE posted_by = ? AND time_posted_epoch >= ? AND time_posted_epoch < ?"
+                    + " ORDER BY time_posted_epoch, message_id", blackhole, accountId, since, accountUntil);
+        }
+    }
+
+    private static void drain(MessageCursor cursor, Blackhole blackhole) throws SQLException {
+        try (cursor) {
+            Message message;
+            while ((message = cursor.next()) != null) {
+                blackhole.consume(message);
+            }
+        }
+    }
+
+    // the unindexed plan, read the way MessageCursor reads: lazily, with the same fetch size
+    private static void scan(String query, Blackhole blackhole, Object... params) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection()) {
+            try (Statement lazy = conn.createStatement()) {
+                lazy.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setFetchSize(256);
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        blackhole.consume(new Message(rs.getInt("message_id"), rs.getInt("posted_by"),
+                                rs.getString("message_text"), rs.getLong("time_posted_epoch")));
+                    }
+                }
+            } finally {
+                try (Statement lazy = conn.createStatement()) {
+                    lazy.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                }
+            }
+        }
+    }
+}
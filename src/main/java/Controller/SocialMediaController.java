@@ -1,28 +1,103 @@
 package Controller;
 
 import Model.Account;
+import Model.AccountImportProgress;
+import Model.AccountImportReject;
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessageEvent;
+import Model.MessagePage;
 import DAO.AccountDAO;
+import DAO.CachingAccountDAO;
+import DAO.MessageCursor;
 import DAO.MessageDAO;
+import DAO.TimedMessageDAO;
+import Service.AccountImporter;
 import Service.AccountService;
+import Service.MessageCache;
+import Service.MessageFeed;
 import Service.MessageService;
+import Service.MessageWriteBuffer;
+import Service.PasswordVerifier;
+import Service.SearchIndex;
+import Service.SessionService;
+import Service.TimelineIndex;
+import Util.ConnectionUtil;
+import Util.JdbcExecutor;
+import Util.JsonCodec;
+import Util.Metrics;
+import Util.PoolMetrics;
+import Util.ResponseCompression;
+import Util.RouteMetrics;
+import Util.ServerThreads;
 import io.javalin.Javalin;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.UnauthorizedResponse;
+import io.javalin.http.sse.SseClient;
+import io.javalin.http.sse.SseHandler;
+import io.javalin.json.JavalinJackson;
+import io.javalin.websocket.WsConfig;
+import io.javalin.websocket.WsContext;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
 import java.util.List;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.DoubleSupplier;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 
 public class SocialMediaController {
+    // seconds a client is asked to wait before retrying when the JDBC executors are saturated
+    private static final String RETRY_AFTER_SECONDS = System.getProperty("socialmedia.jdbc.retryAfterSeconds", "1");
+    // what a handler that answered on its own thread returns as its future
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    // response header /login returns the session token in, so the body stays a plain Account
+    private static final String SESSION_HEADER = "X-Session-Token";
+    // context attribute holding the account_id a request's Bearer token was issued to
+    private static final String SESSION_ACCOUNT = "session-account";
+    // request header POST /accounts/import must carry the configured import token in
+    private static final String IMPORT_TOKEN_HEADER = "X-Import-Token";
+
     private AccountService accountService;
     private MessageService messageService;
+    private SessionService sessionService;
+    private ResponseCompression compression;
+    private AccountImporter accountImporter;
+    // shared secret for bulk imports; without one the endpoint is not registered
+    private String importToken;
+    // feed subscriptions of open WebSocket sessions, by session id
+    private final Map<String, MessageFeed.Subscription> feedSessions = new ConcurrentHashMap<>();
 
     public SocialMediaController() {
-        AccountDAO accountDAO = new AccountDAO();
-        MessageDAO messageDAO = new MessageDAO();
+        AccountDAO accountDAO = new CachingAccountDAO();
+        MessageDAO messageDAO = new TimedMessageDAO();
 
         this.accountService = new AccountService(accountDAO);
-        this.messageService = new MessageService(messageDAO, accountDAO);
+        this.accountImporter = new AccountImporter(accountDAO, accountService.getPasswordVerifier());
+        this.importToken = System.getProperty("socialmedia.accounts.import.token");
+        MessageWriteBuffer writeBuffer = MessageWriteBuffer.ENABLED ? new MessageWriteBuffer(messageDAO) : null;
+        this.messageService = new MessageService(messageDAO, writeBuffer);
+        this.sessionService = new SessionService();
+        this.compression = ResponseCompression.fromProperties();
     }
 
     /**
@@ -31,24 +106,296 @@ public class SocialMediaController {
      * @return a Javalin app object which defines the behavior of the Javalin controller.
      */
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        Javalin app = Javalin.create(config -> {
+            // one shared mapper for every request body and response, instead of Javalin's own default instance
+            config.jsonMapper(new JavalinJackson(JsonCodec.MAPPER));
+            // handlers run on platform or virtual threads, per socialmedia.server.threads
+            config.jetty.server(() -> new Server(ServerThreads.create()));
+            // bodies Javalin writes itself (single messages, pages) are gzipped past the same threshold as listings
+            if (compression.offers(ResponseCompression.GZIP)) {
+                CompressionStrategy strategy = new CompressionStrategy(null, new Gzip(compression.getLevel()));
+                strategy.setMinSizeForCompression(compression.getMinSize());
+                config.compression.custom(strategy);
+            } else {
+                config.compression.none();
+            }
+        });
         
+        // JDBC work runs off the Jetty request threads, on virtual threads admitted by two executors. Full
+        // listings hold a connection for as long as the client reads, so they may use only a third of the pool and
+        // can't starve logins and point reads; everything else is bounded by the pool's borrow timeout, not by a
+        // thread count, so group-committed creates can wait on one flush in any number.
+        int connections = ConnectionUtil.getMaximumPoolSize();
+        int queryConcurrency = Integer.getInteger("socialmedia.jdbc.queryConcurrency", Math.max(1, connections / 3));
+        int defaultConcurrency = Integer.getInteger("socialmedia.jdbc.defaultConcurrency", 256);
+        int queueCapacity = Integer.getInteger("socialmedia.jdbc.queueCapacity", 256);
+        JdbcExecutor queryExecutor = new JdbcExecutor("jdbc-query", queryConcurrency, queueCapacity);
+        JdbcExecutor defaultExecutor = new JdbcExecutor("jdbc-default", defaultConcurrency, queueCapacity);
+        // a bulk import holds a connection per chunk and a hashing pool for minutes, so imports get their own
+        // executor, one at a time by default, and one that arrives while it is taken is answered 503
+        int importConcurrency = Integer.getInteger("socialmedia.accounts.import.concurrency", 1);
+        JdbcExecutor importExecutor = new JdbcExecutor("jdbc-import", importConcurrency, 0);
+        app.events(event -> event.serverStopped(() -> {
+            queryExecutor.shutdown();
+            defaultExecutor.shutdown();
+            importExecutor.shutdown();
+        }));
+
+        // a Bearer token on a message request must be valid; it is checked in memory, before any JDBC work
+        app.before("/messages", this::authenticate);
+        app.before("/messages/*", this::authenticate);
+
         // endpoints for Account
-        app.post("/register", this::registerUser);
-        app.post("/login", this::loginUser);
+        route(app, HandlerType.POST, "/register", defaultExecutor, this::registerUser);
+        routeAsync(app, HandlerType.POST, "/login", defaultExecutor, this::loginUser);
+        route(app, HandlerType.POST, "/logout", defaultExecutor, this::logoutUser);
+        if (importToken != null && !importToken.isEmpty()) {
+            route(app, HandlerType.POST, "/accounts/import", importExecutor, this::importAccounts);
+        }
+
+        // push feed of message changes, as Server-Sent Events or, for an upgrade request, a WebSocket; registered
+        // ahead of /messages/{message_id} so "stream" is not taken for an id; a resume reads its replay pages on
+        // the query executor, like the listings it stands in for
+        app.get("/messages/stream", context -> streamMessages(context, queryExecutor));
+        app.ws("/messages/stream", ws -> feedSocket(ws, queryExecutor));
+        app.events(event -> event.serverStopping(messageService.getFeed()::close));
+
+        // the search index is built from the table before the first request
+        try {
+            messageService.rebuildSearchIndex();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not build the search index.", e);
+        }
 
         // endpoints for Message
-        app.post("/messages", this::createMessage);
-        app.get("/messages", this::getAllMessages);
-        app.get("/messages/{message_id}", this::getMessageById);
-        app.get("/accounts/{account_id}/messages", this::getMessagesByUser);
-        app.delete("/messages/{message_id}", this::deleteMessageById);
-        app.patch("/messages/{message_id}", this::updateMessageById);
+        route(app, HandlerType.POST, "/messages", defaultExecutor, this::createMessage);
+        route(app, HandlerType.POST, "/messages/batch", defaultExecutor, this::createMessages);
+        route(app, HandlerType.GET, "/messages", queryExecutor, this::getAllMessages);
+        route(app, HandlerType.GET, "/messages/search", queryExecutor, this::searchMessages);
+        route(app, HandlerType.GET, "/messages/{message_id}", defaultExecutor, this::getMessageById);
+        route(app, HandlerType.GET, "/accounts/{account_id}/messages", queryExecutor, this::getMessagesByUser);
+        route(app, HandlerType.DELETE, "/messages/{message_id}", defaultExecutor, this::deleteMessageById);
+        route(app, HandlerType.PATCH, "/messages/{message_id}", defaultExecutor, this::updateMessageById);
+
+        // Prometheus scrape endpoint; it reads counters only, so it stays on the request thread
+        registerGauges(app, queryExecutor, defaultExecutor, importExecutor);
+        app.get("/metrics", context -> context.contentType(Metrics.CONTENT_TYPE).result(Metrics.scrape()));
+
+        // stop the password hashing threads with the server
+        app.events(event -> event.serverStopped(accountService.getPasswordVerifier()::close));
+
+        // flush any group-committed messages still queued when the server goes down
+        MessageWriteBuffer writeBuffer = messageService.getWriteBuffer();
+        if (writeBuffer != null) {
+            app.events(event -> event.serverStopped(writeBuffer::close));
+        }
 
         return app;
     }
 
-    // register new user
+    // register an endpoint whose work runs on the given executor, timed and counted under its route
+    private static void route(Javalin app, HandlerType method, String path, JdbcExecutor executor, Handler handler) {
+        routeAsync(app, method, path, executor, context -> {
+            handler.handle(context);
+            return DONE;
+        });
+    }
+
+    // as route, for a handler that starts its work on the executor and finishes it in the future it returns
+    private static void routeAsync(Javalin app, HandlerType method, String path, JdbcExecutor executor,
+                                   AsyncHandler handler) {
+        app.addHandler(method, path, async(Metrics.route(method.name(), path), executor, handler));
+    }
+
+    // hand Javalin a future that runs the handler on the executor, freeing the request thread; Javalin calls the
+    // supplier once this handler has returned, so the work never starts before the request is switched to async.
+    // When the executor is saturated, answer 503 with Retry-After right away instead of queueing without bound
+    private static Handler async(RouteMetrics metrics, JdbcExecutor executor, AsyncHandler handler) {
+        return context -> {
+            long start = metrics.begin();
+            context.future(() -> {
+                CompletableFuture<?> handled;
+                try {
+                    handled = CompletableFuture.supplyAsync(() -> handle(handler, context), executor)
+                            .thenCompose(response -> response);
+                } catch (RejectedExecutionException e) {
+                    handled = CompletableFuture.failedFuture(e);
+                }
+                return handled.handle((response, failure) -> finish(metrics, start, context, failure));
+            });
+        };
+    }
+
+    // run one handler on an executor thread
+    private static CompletableFuture<?> handle(AsyncHandler handler, Context context) {
+        try {
+            return handler.handle(context);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // record how a request ended; a saturated pool, our executor or a downstream one such as password hashing, is
+    // 503 with Retry-After, and anything else is left to Javalin, which answers 500
+    private static Void finish(RouteMetrics metrics, long start, Context context, Throwable failure) {
+        if (failure == null) {
+            metrics.end(start, context.statusCode());
+            return null;
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException) {
+            context.status(503).header("Retry-After", RETRY_AFTER_SECONDS);
+            metrics.end(start, 503);
+            return null;
+        }
+        metrics.end(start, 500);
+        throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+    }
+
+    // a handler that finishes its response in the future it returns, so it need not hold its thread while it waits
+    @FunctionalInterface
+    private interface AsyncHandler {
+        CompletableFuture<?> handle(Context context) throws Exception;
+    }
+
+    // a request that could not get a pooled connection, or its group commit, in time is shed like one the executors
+    // turned away; any other failure is the client's
+    private static void failed(Context context, Exception e) {
+        if (e instanceof SQLTransientException) {
+            context.status(503).header("Retry-After", RETRY_AFTER_SECONDS);
+        } else {
+            context.status(400);
+        }
+    }
+
+    // expose pool, cache, write buffer and executor state at scrape time, for as long as this app runs; the
+    // registry would otherwise keep reading this controller after a restart replaced it
+    private void registerGauges(Javalin app, JdbcExecutor... executors) {
+        List<Runnable> registered = new ArrayList<>();
+        app.events(event -> event.serverStopped(() -> registered.forEach(Runnable::run)));
+        PoolMetrics pool = ConnectionUtil.getPoolMetrics();
+        gauge(registered, "socialmedia_db_pool_connections", "gauge", "Pooled connections by state.",
+                Metrics.labels("state", "active"), pool::getActiveConnections);
+        gauge(registered, "socialmedia_db_pool_connections", "gauge", "Pooled connections by state.",
+                Metrics.labels("state", "idle"), pool::getIdleConnections);
+        gauge(registered, "socialmedia_db_pool_waiters", "gauge", "Threads waiting for a connection.",
+                "", pool::getWaiters);
+        gauge(registered, "socialmedia_db_pool_borrows_total", "counter", "Successful connection borrows.",
+                "", pool::getBorrowCount);
+        gauge(registered, "socialmedia_db_pool_borrow_seconds_total", "counter", "Time spent waiting on borrows.",
+                "", () -> pool.getBorrowNanosTotal() / 1e9);
+        gauge(registered, "socialmedia_db_pool_borrow_timeouts_total", "counter", "Borrows that timed out.",
+                "", pool::getBorrowTimeouts);
+
+        gauge(registered, "socialmedia_account_cache_hits_total", "counter", "Account cache hits.",
+                "", () -> accountService.getAccountCacheStats().hitCount());
+        gauge(registered, "socialmedia_account_cache_misses_total", "counter", "Account cache misses.",
+                "", () -> accountService.getAccountCacheStats().missCount());
+        gauge(registered, "socialmedia_account_cache_evictions_total", "counter",
+                "Accounts evicted from the cache, summed over its id and username indexes.",
+                "", () -> accountService.getAccountCacheStats().evictionCount());
+
+        gauge(registered, "socialmedia_compressed_listing_hits_total", "counter",
+                "Listings answered from kept compressed bytes.",
+                "", () -> compression.getCacheStats().hitCount());
+        gauge(registered, "socialmedia_compressed_listing_misses_total", "counter",
+                "Compressed listings that had to be read and compressed.",
+                "", () -> compression.getCacheStats().missCount());
+        gauge(registered, "socialmedia_compressed_listing_bytes", "gauge", "Bytes of compressed listings kept.",
+                "", compression::getCachedBytes);
+
+        PasswordVerifier passwordVerifier = accountService.getPasswordVerifier();
+        gauge(registered, "socialmedia_password_hash_queue_depth", "gauge", "Password hashes waiting for a CPU thread.",
+                "", passwordVerifier::getQueueDepth);
+        gauge(registered, "socialmedia_password_verified_cache_hits_total", "counter",
+                "Logins verified from the recent-verification cache.",
+                "", () -> passwordVerifier.getVerifiedCacheStats().hitCount());
+        gauge(registered, "socialmedia_password_verified_cache_misses_total", "counter",
+                "Logins that needed a full password hash.",
+                "", () -> passwordVerifier.getVerifiedCacheStats().missCount());
+
+        gauge(registered, "socialmedia_sessions_revoked", "gauge", "Revoked session tokens not yet expired.",
+                "", sessionService::getRevokedCount);
+
+        SearchIndex searchIndex = messageService.getSearchIndex();
+        if (searchIndex != null) {
+            gauge(registered, "socialmedia_search_terms", "gauge", "Distinct terms in the search index.",
+                    "", searchIndex::getTermCount);
+            gauge(registered, "socialmedia_search_stale_hits_total", "counter",
+                    "Search hits dropped because the message had changed since it was indexed.",
+                    "", searchIndex::getStaleHits);
+        }
+
+        MessageFeed feed = messageService.getFeed();
+        gauge(registered, "socialmedia_feed_subscribers", "gauge", "Clients connected to the message feed.",
+                "", feed::getSubscriberCount);
+        gauge(registered, "socialmedia_feed_events_total", "counter", "Message changes published to the feed.",
+                "", feed::getPublishedCount);
+        gauge(registered, "socialmedia_feed_dropped_total", "counter", "Feed clients dropped for falling behind.",
+                "", feed::getDroppedCount);
+
+        MessageCache messageCache = messageService.getMessageCache();
+        if (messageCache != null) {
+            gauge(registered, "socialmedia_message_cache_hits_total", "counter", "Message reads served from the cache.",
+                    "", () -> messageCache.getStats().hitCount());
+            gauge(registered, "socialmedia_message_cache_misses_total", "counter",
+                    "Message reads that went to the database.",
+                    "", () -> messageCache.getStats().missCount());
+            gauge(registered, "socialmedia_message_cache_evictions_total", "counter",
+                    "Messages evicted from the cache.",
+                    "", () -> messageCache.getStats().evictionCount());
+            gauge(registered, "socialmedia_message_cache_size", "gauge", "Message ids cached, found or missing.",
+                    "", messageCache::getSize);
+        }
+
+        TimelineIndex timelineIndex = messageService.getTimelineIndex();
+        if (timelineIndex != null) {
+            gauge(registered, "socialmedia_timeline_hits_total", "counter", "Per-user listings served from memory.",
+                    "", () -> timelineIndex.getStats().hitCount());
+            gauge(registered, "socialmedia_timeline_misses_total", "counter",
+                    "Per-user listings that loaded a timeline.",
+                    "", () -> timelineIndex.getStats().missCount());
+            gauge(registered, "socialmedia_timeline_accounts", "gauge", "Accounts with a timeline in memory.",
+                    "", timelineIndex::getTrackedAccounts);
+        }
+
+        MessageWriteBuffer writeBuffer = messageService.getWriteBuffer();
+        if (writeBuffer != null) {
+            gauge(registered, "socialmedia_group_commit_queue_depth", "gauge", "Messages waiting for a group commit.",
+                    "", writeBuffer::getQueueDepth);
+            gauge(registered, "socialmedia_group_commit_flushes_total", "counter", "Group commits run.",
+                    "", writeBuffer::getFlushCount);
+            gauge(registered, "socialmedia_group_commit_messages_total", "counter",
+                    "Messages written by group commits.",
+                    "", writeBuffer::getFlushedMessages);
+            gauge(registered, "socialmedia_group_commit_last_flush_size", "gauge",
+                    "Messages in the latest group commit.",
+                    "", writeBuffer::getLastFlushSize);
+            gauge(registered, "socialmedia_group_commit_max_flush_size", "gauge",
+                    "Messages in the largest group commit.",
+                    "", writeBuffer::getMaxFlushSize);
+        }
+
+        for (JdbcExecutor executor : executors) {
+            String labels = Metrics.labels("executor", executor.getName());
+            gauge(registered, "socialmedia_jdbc_executor_active", "gauge", "JDBC executor tasks running.",
+                    labels, executor::getActiveCount);
+            gauge(registered, "socialmedia_jdbc_executor_queue_depth", "gauge",
+                    "Admitted tasks waiting for a JDBC executor slot.",
+                    labels, executor::getQueueDepth);
+            gauge(registered, "socialmedia_jdbc_executor_rejected_total", "counter", "Requests turned away with 503.",
+                    labels, executor::getRejectedCount);
+        }
+    }
+
+    // register one gauge and keep the handle that removes it
+    private static void gauge(List<Runnable> registered, String name, String type, String help, String labels,
+                              DoubleSupplier value) {
+        registered.add(Metrics.gauge(name, type, help, labels, value));
+    }
+
+    // register new user; a taken username is rejected by the insert, not looked up first
     private void registerUser(Context context) {
         try {
             Account account = context.bodyAsClass(Account.class);
@@ -56,34 +403,95 @@ public class SocialMediaController {
                 context.status(400);
                 return;
             }
-            Account existingAccount = accountService.getAccountByUsername(account.getUsername());
-            if (existingAccount != null) {
-                context.status(400);
-                return;
-            }
             Account createdAccount = accountService.registerUser(account);
             context.status(200).json(createdAccount);
-        } catch (SQLException e) {
+        } catch (SQLException | IllegalArgumentException e) {
+            failed(context, e);
+        }
+    }
+
+    // register accounts in bulk from an NDJSON or CSV body, streamed back as NDJSON: one line per rejected record,
+    // one per committed chunk, and a last one with complete set (or error, if the import stopped early)
+    private void importAccounts(Context context) throws IOException {
+        String token = context.header(IMPORT_TOKEN_HEADER);
+        if (token == null || !MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), importToken.getBytes(StandardCharsets.UTF_8))) {
+            context.status(401);
+            return;
+        }
+        AccountImporter.Records records;
+        try {
+            records = AccountImporter.open(
+                    new InputStreamReader(context.bodyInputStream(), StandardCharsets.UTF_8), importFormat(context));
+        } catch (IllegalArgumentException e) {
             context.status(400);
+            return;
+        }
+        context.status(200).contentType("application/x-ndjson");
+        try (JsonGenerator generator = JsonCodec.MAPPER.getFactory().createGenerator(context.res().getOutputStream())) {
+            accountImporter.importAccounts(records, new AccountImporter.Listener() {
+                @Override
+                public void rejected(AccountImportReject reject) throws IOException {
+                    generator.writeObject(reject);
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void progress(AccountImportProgress progress) throws IOException {
+                    generator.writeObject(progress);
+                    generator.writeRaw('\n');
+                    generator.flush();
+                }
+            });
         }
     }
 
-    // user login
-    private void loginUser(Context context) {
+    // ?format=, or else text/csv bodies are CSV and everything else NDJSON
+    private static String importFormat(Context context) {
+        String format = context.queryParam("format");
+        if (format != null) {
+            return format;
+        }
+        String contentType = context.contentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv")
+                ? AccountImporter.CSV : AccountImporter.NDJSON;
+    }
+
+    // user login; the response is written once the password check on the hashing pool completes
+    private CompletableFuture<?> loginUser(Context context) {
         try {
             Account account = context.bodyAsClass(Account.class);
             if (account.getUsername().isBlank() || account.getPassword().length() < 4) {
                 context.status(400);
-                return;
-            }
-            Account loggedInAccount = accountService.loginUser(account);
-            if (loggedInAccount != null) {
-                context.status(200).json(loggedInAccount);
-            } else {
-                context.status(401).json("");
+                return DONE;
             }
+            return accountService.loginUser(account).handle((loggedInAccount, failure) -> {
+                if (failure != null) {
+                    if (!(failure.getCause() instanceof SQLException)) {
+                        throw (CompletionException) failure;
+                    }
+                    failed(context, (SQLException) failure.getCause());
+                } else if (loggedInAccount != null) {
+                    context.header(SESSION_HEADER, sessionService.issue(loggedInAccount.getAccount_id()));
+                    context.status(200).json(loggedInAccount);
+                } else {
+                    context.status(401).json("");
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            context.status(400);
+            failed(context, e);
+            return DONE;
+        }
+    }
+
+    // revoke the session token the request carries
+    private void logoutUser(Context context) {
+        String token = bearerToken(context);
+        if (token != null && sessionService.revoke(token)) {
+            context.status(200);
+        } else {
+            context.status(401);
         }
     }
 
@@ -91,28 +499,83 @@ public class SocialMediaController {
     private void createMessage(Context context) {
         try {
             Message message = context.bodyAsClass(Message.class);
-            if (message.getMessage_text().isBlank() || message.getMessage_text().length() > 255) {
-                context.status(400);
+            if (!claimAuthor(context, message)) {
+                context.status(403);
                 return;
             }
-            if (accountService.getAccountById(message.getPosted_by()) == null) {
+            Message createdMessage = messageService.createMessage(message);
+            context.status(200).json(createdMessage);
+        } catch (SQLException | IllegalArgumentException e) {
+            failed(context, e);
+        }
+    }
+
+    // create a batch of messages; the response has one result per message, in request order
+    private void createMessages(Context context) {
+        try {
+            // read with the mapper directly, so a malformed array surfaces as the IOException it is
+            List<Message> messages = JsonCodec.MAPPER.readValue(context.bodyInputStream(),
+                    new TypeReference<List<Message>>(){});
+            if (messages == null || messages.isEmpty() || messages.contains(null)) {
                 context.status(400);
                 return;
             }
-            Message createdMessage = messageService.createMessage(message);
-            context.status(200).json(createdMessage);
-        } catch (SQLException e) {
-            context.status(400);
+            if (messages.size() > MessageService.MAX_BATCH_SIZE) {
+                context.status(413);
+                return;
+            }
+            for (Message message : messages) {
+                if (!claimAuthor(context, message)) {
+                    context.status(403);
+                    return;
+                }
+            }
+            List<MessageBatchResult> results = messageService.createMessages(messages);
+            context.status(200).json(results);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            // a malformed array is a client error, the same as in updateMessageById; anything else is a fault
+            // and is left to the 500 handler
+            failed(context, e);
         }
     }
 
-    // retrieve all messages
+    // retrieve all messages, or one page of them when ?after= or ?limit= is given, or those posted in a time range
+    // when ?since= or ?until= is given
     private void getAllMessages(Context context) {
         try {
-            List<Message> messages = messageService.getAllMessages();
+            String etag = messageService.getVersions().listingTag();
+            if (notModified(context, etag)) {
+                return;
+            }
+            if (isRangeRequest(context)) {
+                Long since = epochParam(context, "since");
+                Long until = epochParam(context, "until");
+                writeListing(context, etag, () -> messageService.streamMessagesInRange(since, until));
+                return;
+            }
+            if (isPageRequest(context)) {
+                MessagePage page = messageService.getMessagesPage(afterParam(context), limitParam(context));
+                writePage(context, page);
+                return;
+            }
+            writeListing(context, etag, messageService::streamAllMessages);
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            failed(context, e);
+        }
+    }
+
+    // the newest messages containing every word of ?q=, up to ?limit=
+    private void searchMessages(Context context) {
+        try {
+            String query = context.queryParam("q");
+            if (query == null) {
+                context.status(400);
+                return;
+            }
+            List<Message> messages = messageService.searchMessages(query, limitParam(context));
             context.status(200).json(messages);
-        } catch (SQLException e) {
-            context.status(400);
+        } catch (SQLException | IllegalArgumentException e) {
+            failed(context, e);
         }
     }
 
@@ -120,6 +583,9 @@ public class SocialMediaController {
     private void getMessageById(Context context) {
         try {
             int messageId = Integer.parseInt(context.pathParam("message_id"));
+            if (notModified(context, messageService.getVersions().messageTag(messageId))) {
+                return;
+            }
             Message message = messageService.getMessageById(messageId);
             if (message != null) {
                 context.status(200).json(message);
@@ -127,7 +593,7 @@ public class SocialMediaController {
                 context.status(200); // Response status should always be 200, which is the default
             }
         } catch (SQLException | NumberFormatException e) {
-            context.status(400);
+            failed(context, e);
         }
     }
 
@@ -135,14 +601,14 @@ public class SocialMediaController {
     private void deleteMessageById(Context context) {
         try {
             int messageId = Integer.parseInt(context.pathParam("message_id"));
-            Message deletedMessage = messageService.deleteMessageById(messageId);
+            Message deletedMessage = messageService.deleteMessageById(messageId, context.attribute(SESSION_ACCOUNT));
             if (deletedMessage != null) {
                 context.status(200).json(deletedMessage);
             } else {
                 context.status(200); 
             }
         } catch (SQLException | NumberFormatException e) {
-            context.status(400);
+            failed(context, e);
         }
     }
 
@@ -150,24 +616,19 @@ public class SocialMediaController {
     private void updateMessageById(Context context) {
         try {
             int messageId = Integer.parseInt(context.pathParam("message_id"));
-            String rawBody = context.body();
 
-            // using Jackson ObjectMapper to parse the raw JSON
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(rawBody);
-            
-            // extract the 'message_text' from the parsed JSON
-            JsonNode messageTextNode = rootNode.get("message_text");
-
-            String newMessageText = messageTextNode.asText(); 
-            Message updatedMessage = messageService.updateMessage(messageId, newMessageText);
+            // the body can not be guaranteed to contain anything but message_text, so pull just that field
+            // out of the stream rather than binding a Message or building a tree
+            String newMessageText = JsonCodec.readTextField(context.bodyInputStream(), "message_text");
+            Message updatedMessage = messageService.updateMessage(messageId, newMessageText,
+                    context.attribute(SESSION_ACCOUNT));
             if (updatedMessage != null) {
                 context.status(200).json(updatedMessage);
             } else {
                 context.status(400);
             }
-        } catch (Exception e) {
-            context.status(400);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            failed(context, e);
         }
     }
 
@@ -175,11 +636,288 @@ public class SocialMediaController {
     private void getMessagesByUser(Context context) {
         try {
             int accountId = Integer.parseInt(context.pathParam("account_id"));
-            List<Message> messages = messageService.getMessagesByUserId(accountId);
-            context.status(200).json(messages);
-        } catch (SQLException | NumberFormatException e) {
+            String etag = messageService.getVersions().accountTag(accountId);
+            if (notModified(context, etag)) {
+                return;
+            }
+            if (isRangeRequest(context)) {
+                Long since = epochParam(context, "since");
+                Long until = epochParam(context, "until");
+                writeListing(context, etag, () -> messageService.streamMessagesByUserIdInRange(accountId, since, until));
+                return;
+            }
+            if (isPageRequest(context)) {
+                MessagePage page = messageService.getMessagesPageByUserId(accountId, afterParam(context), limitParam(context));
+                writePage(context, page);
+                return;
+            }
+            writeListing(context, etag, () -> messageService.streamMessagesByUserId(accountId));
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            failed(context, e);
+        }
+    }
+
+    // write each row to the response as it is read, so memory stays flat however many rows match; with no
+    // Content-Length set, Jetty sends the body with chunked transfer encoding. The body is compressed when the client
+    // accepts it, and an unchanged listing is answered from the compressed bytes kept last time, without a cursor.
+    private void writeListing(Context context, String etag, ListingSource source) throws SQLException, IOException {
+        context.status(200).contentType(ContentType.APPLICATION_JSON).header("Vary", "Accept-Encoding");
+        HttpServletResponse response = context.res();
+        String encoding = compression.negotiate(context.header("Accept-Encoding"));
+        // only the plain listing is kept compressed; filtered ones vary with their query string
+        String key = encoding == null || context.queryString() != null ? null : context.path() + " " + encoding;
+        byte[] cached = key == null ? null : compression.cached(key, etag);
+        if (cached != null) {
+            response.setHeader("Content-Encoding", encoding);
+            response.setContentLength(cached.length);
+            response.getOutputStream().write(cached);
+            return;
+        }
+        // a cursor that fails halfway must not end in a closing bracket, or the truncated listing would look whole
+        // to the client and be kept under this ETag
+        try (MessageCursor cursor = source.open();
+             ResponseCompression.Body body = compression.open(response, encoding, key, etag);
+             JsonGenerator generator = JsonCodec.MAPPER.getFactory().createGenerator(body)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+            generator.writeStartArray();
+            Message message;
+            while ((message = cursor.next()) != null) {
+                generator.writeObject(message);
+            }
+            generator.writeEndArray();
+            body.commit();
+        }
+    }
+
+    // opens the cursor behind a listing, only once it is known the listing has to be read
+    private interface ListingSource {
+        MessageCursor open() throws SQLException;
+    }
+
+    // push message changes as Server-Sent Events; a reconnecting EventSource sends Last-Event-ID, which is the last
+    // message_id it was sent, and first gets everything created since
+    private void streamMessages(Context context, JdbcExecutor replayExecutor) throws Exception {
+        Integer afterId;
+        try {
+            afterId = resumeParam(context.header("Last-Event-ID"), context.queryParam("after"));
+        } catch (IllegalArgumentException e) {
             context.status(400);
+            return;
+        }
+        new SseHandler(client -> {
+            client.keepAlive();
+            messageService.subscribe(new SseSink(client), afterId, replayExecutor);
+        }).handle(context);
+    }
+
+    // the same feed over a WebSocket, one JSON MessageEvent per text frame; resumes from ?after=
+    private void feedSocket(WsConfig ws, JdbcExecutor replayExecutor) {
+        ws.onConnect(context -> {
+            String token = bearerToken(context.header("Authorization"));
+            if (token != null && sessionService.verify(token) == null) {
+                context.closeSession(StatusCode.POLICY_VIOLATION, "Unauthorized");
+                return;
+            }
+            Integer afterId;
+            try {
+                afterId = resumeParam(null, context.queryParam("after"));
+            } catch (IllegalArgumentException e) {
+                context.closeSession(StatusCode.BAD_DATA, "Invalid cursor.");
+                return;
+            }
+            feedSessions.put(context.getSessionId(), messageService.subscribe(new WsSink(context), afterId,
+                    replayExecutor));
+        });
+        ws.onClose(context -> {
+            MessageFeed.Subscription subscription = feedSessions.remove(context.getSessionId());
+            if (subscription != null) {
+                subscription.close();
+            }
+        });
+    }
+
+    // the message_id to resume after, from Last-Event-ID or ?after=; null to start with live changes only
+    private static Integer resumeParam(String lastEventId, String after) {
+        String resume = lastEventId != null && !lastEventId.isBlank() ? lastEventId : after;
+        if (resume == null) {
+            return null;
+        }
+        int afterId = Integer.parseInt(resume.trim());
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return afterId;
+    }
+
+    // creates carry their message_id as the event id, so it is what the browser sends back as Last-Event-ID;
+    // Javalin only notices a client has gone when a write fails, which the heartbeats make sure happens
+    private static class SseSink implements MessageFeed.Sink {
+        private final SseClient client;
+        private volatile boolean disconnected;
+
+        SseSink(SseClient client) {
+            this.client = client;
+            client.onClose(() -> disconnected = true);
+        }
+
+        @Override
+        public void send(MessageEvent event) throws IOException {
+            String id = event.getType().equals(MessageEvent.CREATED)
+                    ? String.valueOf(event.getMessage().getMessage_id())
+                    : null;
+            client.sendEvent(event.getType(), event.getMessage(), id);
+            checkConnected();
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            client.sendComment("heartbeat");
+            checkConnected();
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            client.close();
+        }
+
+        private void checkConnected() throws IOException {
+            if (disconnected) {
+                throw new IOException("Client disconnected.");
+            }
+        }
+    }
+
+    // sends block until the frame is written, so a slow reader backs up its own queue rather than Jetty's buffers
+    private static class WsSink implements MessageFeed.Sink {
+        private final WsContext context;
+
+        WsSink(WsContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void send(MessageEvent event) throws IOException {
+            context.session.getRemote().sendString(JsonCodec.MAPPER.writeValueAsString(event));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            context.session.getRemote().sendPing(ByteBuffer.allocate(0));
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            if (dropped) {
+                context.closeSession(StatusCode.TRY_AGAIN_LATER, "Too far behind.");
+            } else {
+                context.closeSession();
+            }
+        }
+    }
+
+    // a request without a token is let through as before; one with a token that is forged, expired or revoked
+    // stops here with 401
+    private void authenticate(Context context) {
+        String token = bearerToken(context);
+        if (token == null) {
+            return;
+        }
+        Integer accountId = sessionService.verify(token);
+        if (accountId == null) {
+            throw new UnauthorizedResponse();
+        }
+        context.attribute(SESSION_ACCOUNT, accountId);
+    }
+
+    private static String bearerToken(Context context) {
+        return bearerToken(context.header("Authorization"));
+    }
+
+    private static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return authorization.substring(7).trim();
+    }
+
+    // with a session, a message may leave out posted_by and is filled in with the session's account, but may not
+    // be posted as anyone else
+    private static boolean claimAuthor(Context context, Message message) {
+        Integer sessionAccount = context.attribute(SESSION_ACCOUNT);
+        if (sessionAccount == null) {
+            return true;
+        }
+        if (message.getPosted_by() == 0) {
+            message.setPosted_by(sessionAccount);
+        }
+        return message.getPosted_by() == sessionAccount;
+    }
+
+    // tag the response; if the client already holds this version, answer 304 and skip the read entirely
+    private static boolean notModified(Context context, String etag) {
+        context.header("ETag", etag);
+        String ifNoneMatch = context.header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match is a weak comparison, so W/ prefixes are ignored on both sides
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = opaqueTag(candidate.trim());
+            if (tag.equals(opaque) || tag.equals("*")) {
+                context.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static boolean isPageRequest(Context context) {
+        return context.queryParam("after") != null || context.queryParam("limit") != null;
+    }
+
+    // a time range is streamed in time order, so it can't be combined with the message_id paging cursor
+    private static boolean isRangeRequest(Context context) {
+        if (context.queryParam("since") == null && context.queryParam("until") == null) {
+            return false;
+        }
+        if (isPageRequest(context)) {
+            throw new IllegalArgumentException("A time range can not be paged.");
+        }
+        return true;
+    }
+
+    // a time_posted_epoch bound, or null when the parameter is absent
+    private static Long epochParam(Context context, String name) {
+        String value = context.queryParam(name);
+        return value == null ? null : Long.parseLong(value);
+    }
+
+    // cursor is the last message_id the client has seen; 0 starts from the beginning
+    private static int afterParam(Context context) {
+        String after = context.queryParam("after");
+        int afterId = after == null ? 0 : Integer.parseInt(after);
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        return afterId;
+    }
+
+    private static int limitParam(Context context) {
+        String limit = context.queryParam("limit");
+        return limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+    }
+
+    // the body stays a plain JSON array; the cursor for the next page travels in a header
+    private static void writePage(Context context, MessagePage page) {
+        if (page.getNextCursor() != null) {
+            context.header("X-Next-Cursor", String.valueOf(page.getNextCursor()));
         }
+        context.status(200).json(page.getMessages());
     }
 
 }
\ No newline at end of file
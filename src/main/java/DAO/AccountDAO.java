@@ -2,12 +2,21 @@ package DAO;
 
 import Model.Account;
 import java.sql.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import Util.ConnectionUtil;
 
 public class AccountDAO {
 
-    // create a new user account
+    // SQLState H2 reports when an insert collides with the unique index on username
+    static final String UNIQUE_VIOLATION = "23505";
+    // attempts at a batch that keeps colliding with registrations committed while it runs
+    private static final int BATCH_ATTEMPTS = 3;
+
+    // create a new user account; the unique index on username rejects a taken one in the same statement
     public Account createAccount(Account account) throws SQLException {
         String query = "INSERT INTO Account (username, password) VALUES (?, ?)";
 
@@ -24,11 +33,71 @@ public class AccountDAO {
                     account.setAccount_id(generatedKeys.getInt(1));
                 }
             }
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                throw new IllegalArgumentException("Username already exists.", e);
+            }
+            throw e;
         }
 
         return account;
     }
 
+    // insert accounts as one JDBC batch in a single transaction; returns the generated ids in input order, with 0
+    // for accounts whose username is already taken, by an existing account or one earlier in the batch
+    public int[] createAccounts(List<Account> accounts) throws SQLException {
+        // callers leave out the usernames they know are taken, so a plain insert nearly always goes through
+        String insert = "INSERT INTO Account (username, password) VALUES (?, ?)";
+        // MERGE with only a NOT MATCHED branch inserts the new usernames and leaves existing accounts untouched
+        String merge = "MERGE INTO Account a " +
+                "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))) s (username, password) " +
+                "ON a.username = s.username " +
+                "WHEN NOT MATCHED THEN INSERT (username, password) VALUES (s.username, s.password)";
+
+        try (Connection conn = ConnectionUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String query = insert;
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        int[] ids = insertAccounts(conn, query, accounts);
+                        conn.commit();
+                        return ids;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        // one of these usernames was registered after the caller checked; MERGE skips it, and
+                        // is retried in case yet another commits while it runs
+                        if (!isUniqueViolation(e) || attempt == BATCH_ATTEMPTS) {
+                            throw e;
+                        }
+                        query = merge;
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // the usernames among the given ones that are already registered
+    public Set<String> getExistingUsernames(Collection<String> usernames) throws SQLException {
+        String query = "SELECT username FROM Account WHERE username = ANY(?)";
+        Set<String> existing = new HashSet<>();
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setObject(1, usernames.toArray(new String[0]));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString("username"));
+                }
+            }
+        }
+
+        return existing;
+    }
+
     // identify an account by username
     public Account getAccountByUsername(String username) throws SQLException {
         String query = "SELECT * FROM Account WHERE username = ?";
@@ -47,6 +116,11 @@ public class AccountDAO {
         return null;
     }
 
+    // true if the username is known to be taken without asking the database; nothing is held here, so never
+    public boolean isKnownUsername(String username) {
+        return false;
+    }
+
     // return account by account_id
     public Account getAccountById(int accountId) throws SQLException {
         String query = "SELECT * FROM Account WHERE account_id = ?";
@@ -64,4 +138,51 @@ public class AccountDAO {
 
         return null;
     }
+
+    // replace the stored password (hash) of an account; false if there is no such account
+    public boolean updatePassword(int accountId, String password) throws SQLException {
+        String query = "UPDATE Account SET password = ? WHERE account_id = ?";
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, password);
+            stmt.setInt(2, accountId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    private static int[] insertAccounts(Connection conn, String query, List<Account> accounts) throws SQLException {
+        int[] ids = new int[accounts.size()];
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+
+            for (Account account : accounts) {
+                stmt.setString(1, account.getUsername());
+                stmt.setString(2, account.getPassword());
+                stmt.addBatch();
+            }
+
+            int[] affectedRows = stmt.executeBatch();
+
+            // generated keys come back only for the rows that were inserted, in batch order
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                for (int i = 0; i < affectedRows.length; i++) {
+                    if (affectedRows[i] > 0 && generatedKeys.next()) {
+                        ids[i] = generatedKeys.getInt(1);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    // true if the exception, or any failure chained to it by a batch, is a duplicate username
+    static boolean isUniqueViolation(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if (UNIQUE_VIOLATION.equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,138 @@
+package DAO;
+
+import Model.Account;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * An AccountDAO with a bounded read-through cache in front of the account lookups. Accounts are cached by both
+ * account_id and username; each index is bounded by size and evicts independently. Newly registered accounts are
+ * put into the cache so the first message they post does not go to the database to find its author.
+ *
+ * Misses are not cached, since a username that is free now can be registered a moment later. Cached accounts are
+ * copied on the way in and out so callers cannot change what the cache holds.
+ *
+ * A password update drops the account under both keys, whichever of them is still cached. A lookup that read the
+ * row before the update and caches it after would put the old password back, so every update also bumps a counter,
+ * and a lookup that sees it moved while it was reading drops what it just cached.
+ */
+public class CachingAccountDAO extends TimedAccountDAO {
+
+    // maximum accounts held per index
+    public static final long MAX_SIZE = Long.getLong("socialmedia.accounts.cache.maxSize", 10_000L);
+
+    private final Cache<Integer, Account> byId;
+    private final Cache<String, Account> byUsername;
+    // bumped by every password update, after it commits
+    private final AtomicLong passwordUpdates = new AtomicLong();
+
+    public CachingAccountDAO() {
+        this(MAX_SIZE);
+    }
+
+    public CachingAccountDAO(long maxSize) {
+        this(maxSize, maxSize);
+    }
+
+    public CachingAccountDAO(long maxIdSize, long maxUsernameSize) {
+        this.byId = Caffeine.newBuilder().maximumSize(maxIdSize).recordStats().build();
+        this.byUsername = Caffeine.newBuilder().maximumSize(maxUsernameSize).recordStats().build();
+    }
+
+    // create a new user account and cache it
+    @Override
+    public Account createAccount(Account account) throws SQLException {
+        long updates = passwordUpdates.get();
+        Account created = super.createAccount(account);
+        if (created.getAccount_id() > 0) {
+            cache(created, updates);
+        }
+        return created;
+    }
+
+    // identify an account by username, going to the database only on a miss
+    @Override
+    public Account getAccountByUsername(String username) throws SQLException {
+        Account cached = byUsername.getIfPresent(username);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long updates = passwordUpdates.get();
+        Account account = super.getAccountByUsername(username);
+        if (account != null) {
+            cache(account, updates);
+        }
+        return account;
+    }
+
+    // true if the username index holds the account; a miss is no answer, and the database is not asked
+    @Override
+    public boolean isKnownUsername(String username) {
+        return byUsername.getIfPresent(username) != null;
+    }
+
+    // return account by account_id, going to the database only on a miss
+    @Override
+    public Account getAccountById(int accountId) throws SQLException {
+        Account cached = byId.getIfPresent(accountId);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long updates = passwordUpdates.get();
+        Account account = super.getAccountById(accountId);
+        if (account != null) {
+            cache(account, updates);
+        }
+        return account;
+    }
+
+    // replace the stored password and drop the account from both indexes, so the next lookup reads the new one;
+    // usernames never change, so the id index gives the username when it still holds the account, and the table
+    // does otherwise
+    @Override
+    public boolean updatePassword(int accountId, String password) throws SQLException {
+        boolean updated = super.updatePassword(accountId, password);
+        passwordUpdates.incrementAndGet();
+        Account cached = byId.getIfPresent(accountId);
+        Account account = cached != null ? cached : super.getAccountById(accountId);
+        if (account != null) {
+            byUsername.invalidate(account.getUsername());
+        }
+        byId.invalidate(accountId);
+        return updated;
+    }
+
+    /**
+     * @return hit, miss and eviction counts summed over the id and username indexes
+     */
+    public CacheStats getCacheStats() {
+        return byId.stats().plus(byUsername.stats());
+    }
+
+    /**
+     * @return number of accounts currently cached by id
+     */
+    public long getCacheSize() {
+        return byId.estimatedSize();
+    }
+
+    // cache an account read when passwordUpdates stood at updates; if a password changed since, the row may be
+    // older than the update's invalidation, so it is dropped again
+    private void cache(Account account, long updates) {
+        Account copy = copy(account);
+        byId.put(copy.getAccount_id(), copy);
+        byUsername.put(copy.getUsername(), copy);
+        if (passwordUpdates.get() != updates) {
+            byId.invalidate(copy.getAccount_id());
+            byUsername.invalidate(copy.getUsername());
+        }
+    }
+
+    private static Account copy(Account account) {
+        return new Account(account.getAccount_id(), account.getUsername(), account.getPassword());
+    }
+}
@@ -0,0 +1,84 @@
+package DAO;
+
+import Model.Message;
+import java.sql.*;
+
+/**
+ * A MessageCursor over a query. The cursor owns its connection, statement and result set until it is closed.
+ *
+ * The query runs with H2's lazy query execution, so rows are produced as the cursor advances instead of being
+ * materialized up front; memory use stays flat however many rows match.
+ */
+class JdbcMessageCursor implements MessageCursor {
+
+    // rows pulled from the database per round of reads
+    private static final int FETCH_SIZE = Integer.getInteger("socialmedia.messages.cursor.fetchSize", 256);
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+
+    private JdbcMessageCursor(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+    }
+
+    // open a cursor for the query, binding params in order; the connection is closed if opening fails
+    static MessageCursor open(Connection conn, String query, Object... params) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            setLazy(conn, true);
+            stmt = conn.prepareStatement(query);
+            stmt.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            return new JdbcMessageCursor(conn, stmt, stmt.executeQuery());
+        } catch (SQLException e) {
+            if (stmt != null) {
+                stmt.close();
+            }
+            release(conn);
+            throw e;
+        }
+    }
+
+    @Override
+    public Message next() throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        return new Message(
+                rs.getInt("message_id"),
+                rs.getInt("posted_by"),
+                rs.getString("message_text"),
+                rs.getLong("time_posted_epoch")
+        );
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            rs.close();
+            stmt.close();
+        } finally {
+            release(conn);
+        }
+    }
+
+    // pooled connections are shared, so lazy execution is switched back off before the connection is returned
+    private static void release(Connection conn) throws SQLException {
+        try {
+            setLazy(conn, false);
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static void setLazy(Connection conn, boolean lazy) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LAZY_QUERY_EXECUTION " + lazy);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package DAO;
+
+import Model.Message;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A forward-only cursor over messages. A cursor over a query (see JdbcMessageCursor) owns its connection until it
+ * is closed, so callers must close every cursor (try-with-resources) to hand the connection back to the pool.
+ *
+ * A cursor can also walk a list that is already in memory (see of()), so callers that stream results do not need
+ * to care where they came from.
+ */
+public interface MessageCursor extends AutoCloseable {
+
+    /**
+     * @return the next message, or null once the cursor is exhausted
+     */
+    Message next() throws SQLException;
+
+    // a cursor over memory holds nothing to release
+    @Override
+    default void close() throws SQLException {
+    }
+
+    // a cursor over messages already in memory; it holds no connection
+    static MessageCursor of(List<Message> messages) {
+        Iterator<Message> iterator = messages.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+}
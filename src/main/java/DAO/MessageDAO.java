@@ -8,9 +8,21 @@ import Util.ConnectionUtil;
 
 public class MessageDAO {
 
-    // create a new message
+    // SQLState H2 reports when posted_by does not reference an existing account
+    static final String FOREIGN_KEY_VIOLATION = "23506";
+
+    // listing queries that have to be read in order off an index; MessageIndexTest checks their plans. H2 only sees
+    // that idx_message_posted_by_id gives message_id order when posted_by leads the ORDER BY, even though it is
+    // fixed by the WHERE, and without the hint it reads the full per-user listing from the foreign key's index
+    public static final String MESSAGES_AFTER =
+            "SELECT * FROM Message WHERE message_id > ? ORDER BY message_id LIMIT ?";
+    public static final String MESSAGES_BY_USER_ID =
+            "SELECT * FROM Message USE INDEX (idx_message_posted_by_id) WHERE posted_by = ? ORDER BY posted_by, message_id";
+    public static final String MESSAGES_BY_USER_ID_AFTER =
+            "SELECT * FROM Message WHERE posted_by = ? AND message_id > ? ORDER BY posted_by, message_id LIMIT ?";
+
+    // create a new message; the foreign key on posted_by rejects unknown authors in the same statement
     public Message createMessage(Message message) throws SQLException {
-
         String query = "INSERT INTO Message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
 
         try (Connection conn = ConnectionUtil.getConnection();
@@ -28,14 +40,61 @@ public class MessageDAO {
                     message.setMessage_id(generatedKeys.getInt(1));
                 }
             }
+        } catch (SQLException e) {
+            if (FOREIGN_KEY_VIOLATION.equals(e.getSQLState())) {
+                throw new IllegalArgumentException("Invalid user.", e);
+            }
+            throw e;
         }
 
         return message;
     }
 
+    // insert messages as one JDBC batch in a single transaction; returns the generated ids in input order,
+    // with 0 for messages whose posted_by does not reference an existing account
+    public int[] createMessages(List<Message> messages) throws SQLException {
+        // selecting the values from Account inserts nothing for an unknown author instead of failing the whole batch
+        String query = "INSERT INTO Message (posted_by, message_text, time_posted_epoch) " +
+                "SELECT ?, ?, ? FROM Account WHERE account_id = ?";
+        int[] ids = new int[messages.size()];
+
+        try (Connection conn = ConnectionUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+
+                for (Message message : messages) {
+                    stmt.setInt(1, message.getPosted_by());
+                    stmt.setString(2, message.getMessage_text());
+                    stmt.setLong(3, message.getTime_posted_epoch());
+                    stmt.setInt(4, message.getPosted_by());
+                    stmt.addBatch();
+                }
+
+                int[] affectedRows = stmt.executeBatch();
+
+                // generated keys come back only for the rows that were inserted, in batch order
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    for (int i = 0; i < affectedRows.length; i++) {
+                        if (affectedRows[i] > 0 && generatedKeys.next()) {
+                            ids[i] = generatedKeys.getInt(1);
+                            messages.get(i).setMessage_id(ids[i]);
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        return ids;
+    }
+
     // retrieve all messages
     public List<Message> getAllMessages() throws SQLException {
-
         List<Message> messages = new ArrayList<>();
         String query = "SELECT * FROM Message";
 
@@ -56,9 +115,35 @@ public class MessageDAO {
         return messages;
     }
 
+    // open a cursor over all messages in message_id order; the caller must close it
+    public MessageCursor openAllMessages() throws SQLException {
+        String query = "SELECT * FROM Message ORDER BY message_id";
+        return JdbcMessageCursor.open(ConnectionUtil.getConnection(), query);
+    }
+
+    // retrieve up to limit messages with message_id greater than afterId, in message_id order
+    public List<Message> getMessagesAfter(int afterId, int limit) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        String query = MESSAGES_AFTER;
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        }
+
+        return messages;
+    }
+
     // retrieve a message by ID
     public Message getMessageById(int messageId) throws SQLException {
-
         String query = "SELECT * FROM Message WHERE message_id = ?";
 
         try (Connection conn = ConnectionUtil.getConnection();
@@ -80,39 +165,87 @@ public class MessageDAO {
         return null;
     }
 
-    // delete a message by ID
+    // delete a message by ID and return the deleted row, in one statement
     public Message deleteMessageById(int messageId) throws SQLException {
+        return deleteMessageById(messageId, null);
+    }
 
-        String query = "DELETE FROM Message WHERE message_id = ?";
-        Message deletedMessage = getMessageById(messageId); 
+    // delete a message by ID only if postedBy posted it (any author when null); null if no such message
+    public Message deleteMessageById(int messageId, Integer postedBy) throws SQLException {
+        // OLD TABLE exposes the rows as they were before the DELETE, so no separate SELECT is needed
+        String query = postedBy == null
+                ? "SELECT * FROM OLD TABLE (DELETE FROM Message WHERE message_id = ?)"
+                : "SELECT * FROM OLD TABLE (DELETE FROM Message WHERE message_id = ? AND posted_by = ?)";
 
-        if (deletedMessage != null) {
-            try (Connection conn = ConnectionUtil.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
-                stmt.setInt(1, messageId);
-                stmt.executeUpdate();
+            stmt.setInt(1, messageId);
+            if (postedBy != null) {
+                stmt.setInt(2, postedBy);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
             }
         }
 
-        return deletedMessage;
+        return null;
     }
 
-    // update a message by ID
+    // update a message by ID and return the updated row, in one statement
     public Message updateMessage(int messageId, String newMessageText) throws SQLException {
-        
-        String query = "UPDATE Message SET message_text = ? WHERE message_id = ?";
+        return updateMessage(messageId, newMessageText, null);
+    }
+
+    // update a message by ID only if postedBy posted it (any author when null); null if no such message
+    public Message updateMessage(int messageId, String newMessageText, Integer postedBy) throws SQLException {
+        // FINAL TABLE exposes the rows as they are after the UPDATE, so no separate SELECT is needed
+        String query = postedBy == null
+                ? "SELECT * FROM FINAL TABLE (UPDATE Message SET message_text = ? WHERE message_id = ?)"
+                : "SELECT * FROM FINAL TABLE (UPDATE Message SET message_text = ? WHERE message_id = ? AND posted_by = ?)";
 
         try (Connection conn = ConnectionUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, newMessageText);
             stmt.setInt(2, messageId);
+            if (postedBy != null) {
+                stmt.setInt(3, postedBy);
+            }
 
-            int affectedRows = stmt.executeUpdate();
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
+            }
+        }
 
-            if (affectedRows > 0) {
-                return getMessageById(messageId); 
+        return null;
+    }
+
+    // update a message's text like updateMessage, but return the row as it was before the update
+    public Message replaceMessageText(int messageId, String newMessageText, Integer postedBy) throws SQLException {
+        // OLD TABLE exposes the rows as they were before the UPDATE, so callers can tell what the text replaced
+        String query = postedBy == null
+                ? "SELECT * FROM OLD TABLE (UPDATE Message SET message_text = ? WHERE message_id = ?)"
+                : "SELECT * FROM OLD TABLE (UPDATE Message SET message_text = ? WHERE message_id = ? AND posted_by = ?)";
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, newMessageText);
+            stmt.setInt(2, messageId);
+            if (postedBy != null) {
+                stmt.setInt(3, postedBy);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
             }
         }
 
@@ -121,7 +254,6 @@ public class MessageDAO {
 
     // retrieve all messages posted by a particular user
     public List<Message> getMessagesByUserId(int userId) throws SQLException {
-
         List<Message> messages = new ArrayList<>();
         String query = "SELECT * FROM Message WHERE posted_by = ?";
 
@@ -143,4 +275,143 @@ public class MessageDAO {
 
         return messages;
     }
+
+    // open a cursor over all messages posted by a particular user in message_id order; the caller must close it
+    public MessageCursor openMessagesByUserId(int userId) throws SQLException {
+        String query = MESSAGES_BY_USER_ID;
+        return JdbcMessageCursor.open(ConnectionUtil.getConnection(), query, userId);
+    }
+
+    // retrieve up to limit messages posted by a particular user with message_id greater than afterId
+    public List<Message> getMessagesByUserIdAfter(int userId, int afterId, int limit) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        String query = MESSAGES_BY_USER_ID_AFTER;
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, afterId);
+            stmt.setInt(3, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        }
+
+        return messages;
+    }
+
+    // open a cursor over the messages posted in [since, until), in time_posted_epoch order (ties by message_id);
+    // a null bound leaves that side open. idx_message_time_posted_id serves both the range and the order, so rows
+    // stream straight off the index with no sort; the index is named in the query because without statistics H2
+    // may pick another one and sort. The caller must close the cursor.
+    public MessageCursor openMessagesInRange(Long since, Long until) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String query = messagesInRange(since, until, params);
+        return JdbcMessageCursor.open(ConnectionUtil.getConnection(), query, params.toArray());
+    }
+
+    // the same for one user's messages, served by idx_message_posted_by_time; the caller must close the cursor
+    public MessageCursor openMessagesByUserIdInRange(int userId, Long since, Long until) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String query = messagesByUserIdInRange(userId, since, until, params);
+        return JdbcMessageCursor.open(ConnectionUtil.getConnection(), query, params.toArray());
+    }
+
+    // the range listing's query for the bounds that are set, adding its parameters to params
+    public static String messagesInRange(Long since, Long until, List<Object> params) {
+        return "SELECT * FROM Message USE INDEX (idx_message_time_posted_id) WHERE "
+                + timeRange(since, until, params)
+                + " ORDER BY time_posted_epoch, message_id";
+    }
+
+    // the per-user range listing's query; as with MESSAGES_BY_USER_ID, posted_by leads the ORDER BY so that H2
+    // sees the index gives the order, and TimeRangeTest checks the plan
+    public static String messagesByUserIdInRange(int userId, Long since, Long until, List<Object> params) {
+        params.add(userId);
+        return "SELECT * FROM Message USE INDEX (idx_message_posted_by_time) WHERE posted_by = ? AND "
+                + timeRange(since, until, params)
+                + " ORDER BY posted_by, time_posted_epoch, message_id";
+    }
+
+    // the condition for [since, until) on time_posted_epoch, adding the bounds that are set to params
+    private static String timeRange(Long since, Long until, List<Object> params) {
+        StringBuilder condition = new StringBuilder("TRUE");
+        if (since != null) {
+            condition.append(" AND time_posted_epoch >= ?");
+            params.add(since);
+        }
+        if (until != null) {
+            condition.append(" AND time_posted_epoch < ?");
+            params.add(until);
+        }
+        return condition.toString();
+    }
+
+    // retrieve the messages with the given ids that still exist, newest first, in one query
+    public List<Message> getMessagesByIds(int[] ids) throws SQLException {
+        List<Message> messages = new ArrayList<>(ids.length);
+        String query = "SELECT * FROM Message WHERE message_id = ANY(?) ORDER BY message_id DESC";
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            Integer[] boxed = new Integer[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxed[i] = ids[i];
+            }
+            stmt.setObject(1, boxed);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        }
+
+        return messages;
+    }
+
+    // retrieve up to limit messages whose text contains every one of the lowercase terms, newest first; this scans
+    // the whole table, and matches terms anywhere in a word
+    public List<Message> searchMessages(List<String> terms, int limit) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        StringBuilder query = new StringBuilder("SELECT * FROM Message WHERE TRUE");
+        for (int i = 0; i < terms.size(); i++) {
+            query.append(" AND LOWER(message_text) LIKE ?");
+        }
+        query.append(" ORDER BY message_id DESC LIMIT ?");
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+
+            // terms are letters and digits only, so they need no escaping for LIKE
+            int index = 1;
+            for (String term : terms) {
+                stmt.setString(index++, "%" + term + "%");
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        }
+
+        return messages;
+    }
+
+    // build a message from the current row of a result set
+    private static Message mapMessage(ResultSet rs) throws SQLException {
+        return new Message(
+                rs.getInt("message_id"),
+                rs.getInt("posted_by"),
+                rs.getString("message_text"),
+                rs.getLong("time_posted_epoch")
+        );
+    }
 }
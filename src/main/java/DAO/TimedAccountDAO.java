@@ -0,0 +1,54 @@
+package DAO;
+
+import Model.Account;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import Util.LatencyHistogram;
+import Util.Metrics;
+
+/**
+ * An AccountDAO that times every query it runs, exported at GET /metrics. CachingAccountDAO builds on this one,
+ * so only the lookups that miss its cache and reach the database are timed.
+ */
+public class TimedAccountDAO extends AccountDAO {
+
+    private static final LatencyHistogram CREATE_ACCOUNT = Metrics.query("AccountDAO", "createAccount");
+    private static final LatencyHistogram CREATE_ACCOUNTS = Metrics.query("AccountDAO", "createAccounts");
+    private static final LatencyHistogram GET_EXISTING_USERNAMES = Metrics.query("AccountDAO", "getExistingUsernames");
+    private static final LatencyHistogram GET_ACCOUNT_BY_USERNAME = Metrics.query("AccountDAO", "getAccountByUsername");
+    private static final LatencyHistogram GET_ACCOUNT_BY_ID = Metrics.query("AccountDAO", "getAccountById");
+    private static final LatencyHistogram UPDATE_PASSWORD = Metrics.query("AccountDAO", "updatePassword");
+
+    @Override
+    public Account createAccount(Account account) throws SQLException {
+        return CREATE_ACCOUNT.time(() -> super.createAccount(account));
+    }
+
+    @Override
+    public int[] createAccounts(List<Account> accounts) throws SQLException {
+        return CREATE_ACCOUNTS.time(() -> super.createAccounts(accounts));
+    }
+
+    @Override
+    public Set<String> getExistingUsernames(Collection<String> usernames) throws SQLException {
+        return GET_EXISTING_USERNAMES.time(() -> super.getExistingUsernames(usernames));
+    }
+
+    @Override
+    public Account getAccountByUsername(String username) throws SQLException {
+        return GET_ACCOUNT_BY_USERNAME.time(() -> super.getAccountByUsername(username));
+    }
+
+    @Override
+    public Account getAccountById(int accountId) throws SQLException {
+        return GET_ACCOUNT_BY_ID.time(() -> super.getAccountById(accountId));
+    }
+
+    @Override
+    public boolean updatePassword(int accountId, String password) throws SQLException {
+        return UPDATE_PASSWORD.time(() -> super.updatePassword(accountId, password));
+    }
+}
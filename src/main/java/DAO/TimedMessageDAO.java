@@ -0,0 +1,113 @@
+package DAO;
+
+import Model.Message;
+import java.sql.SQLException;
+import java.util.List;
+
+import Util.LatencyHistogram;
+import Util.Metrics;
+
+/**
+ * A MessageDAO that times every query it runs, exported at GET /metrics. Methods that open a cursor are timed
+ * until the query has run; reading the rows is the caller's time. The one-argument delete and update overloads go
+ * through the timed ones, so they are not timed twice.
+ */
+public class TimedMessageDAO extends MessageDAO {
+
+    private static final LatencyHistogram CREATE_MESSAGE = Metrics.query("MessageDAO", "createMessage");
+    private static final LatencyHistogram CREATE_MESSAGES = Metrics.query("MessageDAO", "createMessages");
+    private static final LatencyHistogram GET_ALL_MESSAGES = Metrics.query("MessageDAO", "getAllMessages");
+    private static final LatencyHistogram OPEN_ALL_MESSAGES = Metrics.query("MessageDAO", "openAllMessages");
+    private static final LatencyHistogram GET_MESSAGES_AFTER = Metrics.query("MessageDAO", "getMessagesAfter");
+    private static final LatencyHistogram GET_MESSAGE_BY_ID = Metrics.query("MessageDAO", "getMessageById");
+    private static final LatencyHistogram DELETE_MESSAGE_BY_ID = Metrics.query("MessageDAO", "deleteMessageById");
+    private static final LatencyHistogram UPDATE_MESSAGE = Metrics.query("MessageDAO", "updateMessage");
+    private static final LatencyHistogram REPLACE_MESSAGE_TEXT = Metrics.query("MessageDAO", "replaceMessageText");
+    private static final LatencyHistogram GET_MESSAGES_BY_USER_ID = Metrics.query("MessageDAO", "getMessagesByUserId");
+    private static final LatencyHistogram OPEN_MESSAGES_BY_USER_ID = Metrics.query("MessageDAO", "openMessagesByUserId");
+    private static final LatencyHistogram GET_MESSAGES_BY_USER_ID_AFTER = Metrics.query("MessageDAO", "getMessagesByUserIdAfter");
+    private static final LatencyHistogram OPEN_MESSAGES_IN_RANGE = Metrics.query("MessageDAO", "openMessagesInRange");
+    private static final LatencyHistogram OPEN_MESSAGES_BY_USER_ID_IN_RANGE = Metrics.query("MessageDAO", "openMessagesByUserIdInRange");
+    private static final LatencyHistogram GET_MESSAGES_BY_IDS = Metrics.query("MessageDAO", "getMessagesByIds");
+    private static final LatencyHistogram SEARCH_MESSAGES = Metrics.query("MessageDAO", "searchMessages");
+
+    @Override
+    public Message createMessage(Message message) throws SQLException {
+        return CREATE_MESSAGE.time(() -> super.createMessage(message));
+    }
+
+    @Override
+    public int[] createMessages(List<Message> messages) throws SQLException {
+        return CREATE_MESSAGES.time(() -> super.createMessages(messages));
+    }
+
+    @Override
+    public List<Message> getAllMessages() throws SQLException {
+        return GET_ALL_MESSAGES.time(super::getAllMessages);
+    }
+
+    @Override
+    public MessageCursor openAllMessages() throws SQLException {
+        return OPEN_ALL_MESSAGES.time(super::openAllMessages);
+    }
+
+    @Override
+    public List<Message> getMessagesAfter(int afterId, int limit) throws SQLException {
+        return GET_MESSAGES_AFTER.time(() -> super.getMessagesAfter(afterId, limit));
+    }
+
+    @Override
+    public Message getMessageById(int messageId) throws SQLException {
+        return GET_MESSAGE_BY_ID.time(() -> super.getMessageById(messageId));
+    }
+
+    @Override
+    public Message deleteMessageById(int messageId, Integer postedBy) throws SQLException {
+        return DELETE_MESSAGE_BY_ID.time(() -> super.deleteMessageById(messageId, postedBy));
+    }
+
+    @Override
+    public Message updateMessage(int messageId, String newMessageText, Integer postedBy) throws SQLException {
+        return UPDATE_MESSAGE.time(() -> super.updateMessage(messageId, newMessageText, postedBy));
+    }
+
+    @Override
+    public Message replaceMessageText(int messageId, String newMessageText, Integer postedBy) throws SQLException {
+        return REPLACE_MESSAGE_TEXT.time(() -> super.replaceMessageText(messageId, newMessageText, postedBy));
+    }
+
+    @Override
+    public List<Message> getMessagesByUserId(int userId) throws SQLException {
+        return GET_MESSAGES_BY_USER_ID.time(() -> super.getMessagesByUserId(userId));
+    }
+
+    @Override
+    public MessageCursor openMessagesByUserId(int userId) throws SQLException {
+        return OPEN_MESSAGES_BY_USER_ID.time(() -> super.openMessagesByUserId(userId));
+    }
+
+    @Override
+    public List<Message> getMessagesByUserIdAfter(int userId, int afterId, int limit) throws SQLException {
+        return GET_MESSAGES_BY_USER_ID_AFTER.time(() -> super.getMessagesByUserIdAfter(userId, afterId, limit));
+    }
+
+    @Override
+    public MessageCursor openMessagesInRange(Long since, Long until) throws SQLException {
+        return OPEN_MESSAGES_IN_RANGE.time(() -> super.openMessagesInRange(since, until));
+    }
+
+    @Override
+    public MessageCursor openMessagesByUserIdInRange(int userId, Long since, Long until) throws SQLException {
+        return OPEN_MESSAGES_BY_USER_ID_IN_RANGE.time(() -> super.openMessagesByUserIdInRange(userId, since, until));
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) throws SQLException {
+        return GET_MESSAGES_BY_IDS.time(() -> super.getMessagesByIds(ids));
+    }
+
+    @Override
+    public List<Message> searchMessages(List<String> terms, int limit) throws SQLException {
+        return SEARCH_MESSAGES.time(() -> super.searchMessages(terms, limit));
+    }
+}
@@ -0,0 +1,77 @@
+import DAO.AccountDAO;
+import Model.AccountImportProgress;
+import Model.AccountImportReject;
+import Service.AccountImporter;
+import Service.PasswordVerifier;
+import Util.ConnectionUtil;
+import Util.JsonCodec;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Imports accounts from an NDJSON or CSV file straight into the database, the same way POST /accounts/import does:
+ *
+ *     ImportAccounts [--format ndjson|csv] <file | ->
+ *
+ * The format defaults to csv for a .csv file and ndjson otherwise. Rejected records are printed to standard output
+ * as NDJSON, progress to standard error. Nothing else runs in this process, so every core hashes passwords. Exits
+ * with 0 once the whole input has been read, 1 if the import stopped early and 2 for a usage error.
+ */
+public class ImportAccounts {
+    public static void main(String[] args) throws IOException {
+        String format = null;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            } else if (file == null && (args[i].equals("-") || !args[i].startsWith("-"))) {
+                file = args[i];
+            } else {
+                file = null;
+                break;
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: ImportAccounts [--format ndjson|csv] <file | ->");
+            System.exit(2);
+        }
+        if (format == null) {
+            format = file.toLowerCase(Locale.ROOT).endsWith(".csv") ? AccountImporter.CSV : AccountImporter.NDJSON;
+        }
+
+        ConnectionUtil.migrate();
+        AccountImportProgress result;
+        try (Reader input = file.equals("-")
+                     ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                     : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+             PasswordVerifier passwordVerifier = new PasswordVerifier()) {
+            AccountImporter importer = new AccountImporter(new AccountDAO(), passwordVerifier,
+                    AccountImporter.CHUNK_SIZE, PasswordVerifier.THREADS);
+            result = importer.importAccounts(AccountImporter.open(input, format), new AccountImporter.Listener() {
+                @Override
+                public void rejected(AccountImportReject reject) throws IOException {
+                    System.out.println(JsonCodec.MAPPER.writeValueAsString(reject));
+                }
+
+                @Override
+                public void progress(AccountImportProgress progress) {
+                    System.err.println("read " + progress.getRead() + ", imported " + progress.getImported()
+                            + ", rejected " + progress.getRejected());
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (!result.isComplete()) {
+            System.err.println(result.getError());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * This is a class that models how far an account import has got: sent after every committed chunk, and once more
+ * at the end with complete set. An import that stopped early has error set and complete false; everything counted
+ * as imported by then stays committed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountImportProgress {
+    /**
+     * Records read so far.
+     */
+    public long read;
+    /**
+     * Accounts created so far.
+     */
+    public long imported;
+    /**
+     * Records rejected so far.
+     */
+    public long rejected;
+    /**
+     * True on the last report of an import that read its input to the end.
+     */
+    public boolean complete;
+    /**
+     * Why the import stopped early, or null.
+     */
+    public String error;
+
+    public AccountImportProgress() {
+    }
+
+    public AccountImportProgress(long read, long imported, long rejected, boolean complete, String error) {
+        this.read = read;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.complete = complete;
+        this.error = error;
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountImportProgress{" +
+                "read=" + read +
+                ", imported=" + imported +
+                ", rejected=" + rejected +
+                ", complete=" + complete +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,53 @@
+package Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * This is a class that models one record an account import turned away. The username is left out of the JSON when
+ * the record could not be read far enough to find one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountImportReject {
+    /**
+     * The line of the input the record starts on, counting from 1.
+     */
+    public long line;
+    /**
+     * The record's username, or null if it has none.
+     */
+    public String username;
+    /**
+     * Why the record was rejected.
+     */
+    public String error;
+
+    public AccountImportReject() {
+    }
+
+    public AccountImportReject(long line, String username, String error) {
+        this.line = line;
+        this.username = username;
+        this.error = error;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountImportReject{" +
+                "line=" + line +
+                ", username='" + username + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,51 @@
+package Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * This is a class that models the outcome for one message of a batch insert. Exactly one of message_id and error
+ * is set; the unset one is left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageBatchResult {
+    /**
+     * The id generated for the message, or null if it was rejected.
+     */
+    public Integer message_id;
+    /**
+     * Why the message was rejected, or null if it was inserted.
+     */
+    public String error;
+
+    public MessageBatchResult() {
+    }
+
+    private MessageBatchResult(Integer message_id, String error) {
+        this.message_id = message_id;
+        this.error = error;
+    }
+
+    public static MessageBatchResult created(int message_id) {
+        return new MessageBatchResult(message_id, null);
+    }
+
+    public static MessageBatchResult rejected(String error) {
+        return new MessageBatchResult(null, error);
+    }
+
+    public Integer getMessage_id() {
+        return message_id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatchResult{" +
+                "message_id=" + message_id +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
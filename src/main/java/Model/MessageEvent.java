@@ -0,0 +1,44 @@
+package Model;
+
+/**
+ * This is a class that models one change pushed to the message feed: the message as it was created or updated, or
+ * as it was just before it was deleted.
+ */
+public class MessageEvent {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    /**
+     * What happened to the message: created, updated or deleted.
+     */
+    public String type;
+    /**
+     * The message the event is about.
+     */
+    public Message message;
+
+    public MessageEvent() {
+    }
+
+    public MessageEvent(String type, Message message) {
+        this.type = type;
+        this.message = message;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageEvent{" +
+                "type='" + type + '\'' +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * This is a class that models one page of a keyset-paginated message listing.
+ */
+public class MessagePage {
+    /**
+     * The messages on this page, in ascending message_id order.
+     */
+    private final List<Message> messages;
+    /**
+     * The message_id to pass as the "after" cursor to fetch the next page, or null if this is the last page.
+     */
+    private final Integer nextCursor;
+
+    public MessagePage(List<Message> messages, Integer nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the messages on this page
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the cursor for the next page, or null if there are no more messages
+     */
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePage{" +
+                "messages=" + messages +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -0,0 +1,419 @@
+package Service;
+
+import DAO.AccountDAO;
+import Model.Account;
+import Model.AccountImportProgress;
+import Model.AccountImportReject;
+import Util.JsonCodec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Bulk registration from a stream of NDJSON or CSV records, behind POST /accounts/import and the ImportAccounts
+ * command. Records are read one at a time and imported in chunks of chunkSize, one transaction per chunk, so memory
+ * use depends on the chunk size and not on the size of the input.
+ *
+ * For each chunk, usernames repeated within the chunk are rejected in memory, and those already registered are
+ * found with one query and rejected before their passwords are hashed. Hashing is by far the slowest step, so the
+ * check saves a lot on a file that is imported twice, and a username repeated in an earlier chunk of the same
+ * file is caught by it too. The rest is inserted as one batch. If a registration takes one of those usernames in
+ * the meantime, the batch is retried as a MERGE that skips it.
+ *
+ * Each record is held to the same rules as POST /register. Rejects are reported as they are found, and progress
+ * after every commit. A database failure stops the import. The chunks committed before it stay, and running the
+ * same input again picks up where it stopped, since the usernames already imported are rejected as taken.
+ */
+public class AccountImporter {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    // records per transaction
+    public static final int CHUNK_SIZE = Integer.getInteger("socialmedia.accounts.import.chunkSize", 500);
+    // password hashes an import keeps on the CPU pool at once; the rest of the pool stays free for logins
+    public static final int HASH_THREADS = Integer.getInteger("socialmedia.accounts.import.hashThreads",
+            Math.max(1, PasswordVerifier.THREADS / 2));
+    // longest record read, in characters; a longer one is skipped and rejected
+    public static final int MAX_RECORD_LENGTH = Integer.getInteger("socialmedia.accounts.import.maxRecordLength", 4096);
+
+    // the width of Account.username
+    private static final int MAX_USERNAME_LENGTH = 255;
+
+    private final AccountDAO accountDAO;
+    private final PasswordVerifier passwordVerifier;
+    private final int chunkSize;
+    private final int hashThreads;
+
+    // where rejects and progress go, as they happen
+    public interface Listener {
+        void rejected(AccountImportReject reject) throws IOException;
+
+        void progress(AccountImportProgress progress) throws IOException;
+    }
+
+    public AccountImporter(AccountDAO accountDAO, PasswordVerifier passwordVerifier) {
+        this(accountDAO, passwordVerifier, CHUNK_SIZE, HASH_THREADS);
+    }
+
+    public AccountImporter(AccountDAO accountDAO, PasswordVerifier passwordVerifier, int chunkSize, int hashThreads) {
+        if (chunkSize < 1 || hashThreads < 1) {
+            throw new IllegalArgumentException("Chunk size and hash threads must be positive.");
+        }
+        this.accountDAO = accountDAO;
+        this.passwordVerifier = passwordVerifier;
+        this.chunkSize = chunkSize;
+        this.hashThreads = hashThreads;
+    }
+
+    /**
+     * Opens the records in the input. A CSV input's header is read here, so one without username and password
+     * columns fails before anything is imported.
+     *
+     * @throws IllegalArgumentException if the format is unknown or the CSV header is unusable
+     */
+    public static Records open(Reader input, String format) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case NDJSON:
+                return new NdjsonRecords(reader);
+            case CSV:
+                return new CsvRecords(reader);
+            default:
+                throw new IllegalArgumentException("Unknown import format " + format);
+        }
+    }
+
+    /**
+     * Import every record. Database failures, and a password pool too busy to take the hashes, end the import
+     * early and are reported in the returned progress rather than thrown.
+     *
+     * @return the final counts, as also sent to the listener
+     * @throws IOException if reading the input or reporting to the listener fails
+     */
+    public AccountImportProgress importAccounts(Records records, Listener listener) throws IOException {
+        Run run = new Run(listener);
+        List<Record> chunk = new ArrayList<>(chunkSize);
+        Set<String> chunkUsernames = new HashSet<>();
+        try {
+            Record record;
+            while ((record = records.next()) != null) {
+                run.read++;
+                String error = record.error != null ? record.error : validate(record);
+                if (error == null && !chunkUsernames.add(record.username)) {
+                    error = "Duplicate username.";
+                }
+                if (error != null) {
+                    run.reject(record, error);
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    run.importChunk(chunk);
+                    chunk.clear();
+                    chunkUsernames.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                run.importChunk(chunk);
+            }
+        } catch (SQLException | RejectedExecutionException e) {
+            return run.finish(false, "Import stopped: " + e.getMessage());
+        }
+        return run.finish(true, null);
+    }
+
+    // the same rules as POST /register, plus what the username column can hold
+    private static String validate(Record record) {
+        if (record.username == null || record.username.isBlank()) {
+            return "Username must not be blank.";
+        }
+        if (record.username.length() > MAX_USERNAME_LENGTH) {
+            return "Username is too long.";
+        }
+        if (record.password == null || record.password.length() < 4) {
+            return "Password must be at least 4 characters.";
+        }
+        return null;
+    }
+
+    // the counts of one import and the chunk work that updates them
+    private class Run {
+        private final Listener listener;
+        long read;
+        long imported;
+        long rejected;
+
+        Run(Listener listener) {
+            this.listener = listener;
+        }
+
+        void reject(Record record, String error) throws IOException {
+            rejected++;
+            listener.rejected(new AccountImportReject(record.line, record.username, error));
+        }
+
+        // chunk holds valid records with distinct usernames
+        void importChunk(List<Record> chunk) throws SQLException, IOException {
+            List<String> usernames = new ArrayList<>(chunk.size());
+            for (Record record : chunk) {
+                usernames.add(record.username);
+            }
+            Set<String> existing = accountDAO.getExistingUsernames(usernames);
+
+            List<Record> fresh = new ArrayList<>(chunk.size());
+            List<String> passwords = new ArrayList<>(chunk.size());
+            for (Record record : chunk) {
+                if (existing.contains(record.username)) {
+                    reject(record, "Username already exists.");
+                } else {
+                    fresh.add(record);
+                    passwords.add(record.password);
+                }
+            }
+            if (fresh.isEmpty()) {
+                listener.progress(progress(false, null));
+                return;
+            }
+
+            List<String> hashes = passwordVerifier.hashAll(passwords, hashThreads);
+            List<Account> accounts = new ArrayList<>(fresh.size());
+            for (int i = 0; i < fresh.size(); i++) {
+                accounts.add(new Account(fresh.get(i).username, hashes.get(i)));
+            }
+            int[] ids = accountDAO.createAccounts(accounts);
+
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] > 0) {
+                    imported++;
+                } else {
+                    // registered between the check above and the insert
+                    reject(fresh.get(i), "Username already exists.");
+                }
+            }
+            listener.progress(progress(false, null));
+        }
+
+        AccountImportProgress finish(boolean complete, String error) throws IOException {
+            AccountImportProgress progress = progress(complete, error);
+            listener.progress(progress);
+            return progress;
+        }
+
+        AccountImportProgress progress(boolean complete, String error) {
+            return new AccountImportProgress(read, imported, rejected, complete, error);
+        }
+    }
+
+    // one record of the input; error is set if it could not be read
+    public static final class Record {
+        final long line;
+        final String username;
+        final String password;
+        final String error;
+
+        Record(long line, String username, String password, String error) {
+            this.line = line;
+            this.username = username;
+            this.password = password;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The records of one input, read on demand. Blank lines are skipped.
+     */
+    public abstract static class Records {
+        final BufferedReader reader;
+        // the line the next character is on
+        long line = 1;
+
+        Records(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the next record, or null at the end of the input
+         */
+        public abstract Record next() throws IOException;
+    }
+
+    // one JSON object per line, with username and password fields
+    private static final class NdjsonRecords extends Records {
+
+        NdjsonRecords(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Record next() throws IOException {
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                long start = line;
+                text.setLength(0);
+                boolean tooLong = false;
+                int c;
+                while ((c = reader.read()) != -1 && c != '\n') {
+                    if (text.length() < MAX_RECORD_LENGTH) {
+                        text.append((char) c);
+                    } else {
+                        tooLong = true;
+                    }
+                }
+                if (c == -1 && text.length() == 0 && !tooLong) {
+                    return null;
+                }
+                line++;
+                if (tooLong) {
+                    return new Record(start, null, null, "Record is too long.");
+                }
+                if (!text.toString().isBlank()) {
+                    return parse(start, text.toString());
+                }
+            }
+        }
+
+        private static Record parse(long line, String text) {
+            JsonNode node;
+            try {
+                node = JsonCodec.MAPPER.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new Record(line, null, null, "Invalid JSON.");
+            }
+            if (!node.isObject()) {
+                return new Record(line, null, null, "Expected a JSON object.");
+            }
+            return new Record(line, text(node.get("username")), text(node.get("password")), null);
+        }
+
+        private static String text(JsonNode value) {
+            return value == null || !value.isValueNode() || value.isNull() ? null : value.asText();
+        }
+    }
+
+    // RFC 4180 CSV: a header naming the username and password columns, in any order among others, then one record
+    // per line; quoted fields may hold commas, doubled quotes and line breaks
+    private static final class CsvRecords extends Records {
+        // what readFields returns for a record over MAX_RECORD_LENGTH
+        private static final List<String> TOO_LONG = new ArrayList<>();
+
+        private final int usernameColumn;
+        private final int passwordColumn;
+
+        CsvRecords(BufferedReader reader) throws IOException {
+            super(reader);
+            List<String> header = readFields();
+            int username = -1;
+            int password = -1;
+            for (int i = 0; header != null && header != TOO_LONG && i < header.size(); i++) {
+                // a byte order mark left by a spreadsheet export sticks to the first name
+                String name = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                if (name.equals("username")) {
+                    username = i;
+                } else if (name.equals("password")) {
+                    password = i;
+                }
+            }
+            if (username < 0 || password < 0) {
+                throw new IllegalArgumentException("The CSV header must name username and password columns.");
+            }
+            this.usernameColumn = username;
+            this.passwordColumn = password;
+        }
+
+        @Override
+        public Record next() throws IOException {
+            while (true) {
+                long start = line;
+                List<String> fields = readFields();
+                if (fields == null) {
+                    return null;
+                }
+                if (fields == TOO_LONG) {
+                    return new Record(start, null, null, "Record is too long.");
+                }
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                if (fields.size() <= Math.max(usernameColumn, passwordColumn)) {
+                    return new Record(start, null, null, "Missing username or password column.");
+                }
+                return new Record(start, fields.get(usernameColumn), fields.get(passwordColumn), null);
+            }
+        }
+
+        // the fields of the next record, null at the end of the input; a record over MAX_RECORD_LENGTH comes back
+        // as TOO_LONG, and past the limit nothing of it is kept while it is read through to its end
+        private List<String> readFields() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean fieldStart = true;
+            boolean read = false;
+            int length = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                read = true;
+                if (fields != null && ++length > MAX_RECORD_LENGTH) {
+                    fields = null;
+                    field = null;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            append(field, '"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        append(field, (char) c);
+                    }
+                } else if (c == '"' && fieldStart) {
+                    quoted = true;
+                } else if (c == ',') {
+                    if (fields != null) {
+                        fields.add(field.toString());
+                        field = new StringBuilder();
+                    }
+                    fieldStart = true;
+                    continue;
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    append(field, (char) c);
+                }
+                fieldStart = false;
+            }
+            if (!read) {
+                return null;
+            }
+            if (fields == null) {
+                return TOO_LONG;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private static void append(StringBuilder field, char c) {
+            if (field != null) {
+                field.append(c);
+            }
+        }
+    }
+}
@@ -1,31 +1,93 @@
 package Service;
 
 import DAO.AccountDAO;
+import DAO.CachingAccountDAO;
 import Model.Account;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AccountService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountService.class);
+
+    // the write that stores a fresh hash runs on a virtual thread of its own, not on the hashing pool's CPU threads,
+    // which would otherwise sit idle while it waits for a connection
+    private static final ThreadFactory REHASH_THREADS = Thread.ofVirtual().name("password-rehash-", 1).factory();
+    private static final Executor REHASH_WRITES = task -> REHASH_THREADS.newThread(task).start();
     
     private AccountDAO accountDAO;
+    private PasswordVerifier passwordVerifier;
 
     public AccountService(AccountDAO accountDAO) {
+        this(accountDAO, new PasswordVerifier());
+    }
+
+    public AccountService(AccountDAO accountDAO, PasswordVerifier passwordVerifier) {
         this.accountDAO = accountDAO;
+        this.passwordVerifier = passwordVerifier;
     }
 
-    // register new user's account
+    // register new user's account; only a salted hash of the password is stored, the caller's account keeps
+    // the password it was given. A taken username is an IllegalArgumentException, decided by the insert itself,
+    // so two registrations of the same name cannot both succeed. A name the account cache already holds is
+    // turned away before the password is hashed; the database is never asked first
     public Account registerUser(Account account) throws SQLException {
-        return accountDAO.createAccount(account);
+        if (accountDAO.isKnownUsername(account.getUsername())) {
+            throw new IllegalArgumentException("Username already exists.");
+        }
+        String hash = passwordVerifier.hash(account.getPassword());
+        Account createdAccount = accountDAO.createAccount(new Account(account.getUsername(), hash));
+        account.setAccount_id(createdAccount.getAccount_id());
+        return account;
     }
 
-     // for user login
-     public Account loginUser(Account account) throws SQLException {
+    // for user login; completes with the account, or null if the username or password is wrong. The lookup runs on
+    // the caller's thread and the password check on the hashing pool, so the caller is not held while the hash
+    // runs. An unknown username is checked against a dummy hash, so it takes as long as a wrong password. A stored
+    // password that is still plaintext, or was hashed at an older cost, is replaced with a fresh hash now that we
+    // have the password to hash; the login does not wait for that, and a failed upgrade is logged and tried again
+    // at the next login
+    public CompletableFuture<Account> loginUser(Account account) throws SQLException {
         Account existingAccount = accountDAO.getAccountByUsername(account.getUsername());
 
-        if (existingAccount != null && existingAccount.getPassword().equals(account.getPassword())) {
-            return existingAccount;
+        if (existingAccount == null) {
+            return passwordVerifier.verifyMissingAsync(account.getPassword()).thenApply(matches -> null);
         }
+        Account loggedInAccount =
+                new Account(existingAccount.getAccount_id(), existingAccount.getUsername(), account.getPassword());
+        return passwordVerifier.verifyAsync(account.getPassword(), existingAccount.getPassword())
+                .thenApply(matches -> {
+                    if (!matches) {
+                        return null;
+                    }
+                    if (passwordVerifier.needsRehash(existingAccount.getPassword())) {
+                        rehash(existingAccount.getAccount_id(), account.getPassword());
+                    }
+                    return loggedInAccount;
+                });
+    }
 
-        return null; 
+    // store a fresh hash of a password that just verified, in the background
+    private void rehash(int accountId, String password) {
+        passwordVerifier.hashAsync(password)
+                .thenAcceptAsync(hash -> {
+                    try {
+                        accountDAO.updatePassword(accountId, hash);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, REHASH_WRITES)
+                .exceptionally(failure -> {
+                    LOG.warn("Could not store a fresh password hash for account {}", accountId, failure);
+                    return null;
+                });
     }
 
     // fetch an account by username
@@ -38,4 +100,16 @@ public class AccountService {
         return accountDAO.getAccountById(accountId);
     }
 
+    // hit/miss/eviction counters for the account cache, empty if the DAO does not cache
+    public CacheStats getAccountCacheStats() {
+        if (accountDAO instanceof CachingAccountDAO) {
+            return ((CachingAccountDAO) accountDAO).getCacheStats();
+        }
+        return CacheStats.empty();
+    }
+
+    public PasswordVerifier getPasswordVerifier() {
+        return passwordVerifier;
+    }
+
 }
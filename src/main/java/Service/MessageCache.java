@@ -0,0 +1,117 @@
+package Service;
+
+import Model.Message;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * A bounded cache of single messages by message_id, in front of GET /messages/{message_id}. Caffeine's W-TinyLFU
+ * policy keeps the ids that are read often rather than the ones read last. Ids that do not exist are cached too,
+ * as a placeholder, so repeated reads of a missing id stop reaching the database.
+ *
+ * MessageService tells the cache about every write once it has committed: a create drops any "missing" entry for
+ * the new id, an update drops the entry so the next read sees the new text, and a delete records the id as missing
+ * (ids are never reused). A load runs outside the cache, so no lock or compute is held while it queries. Every
+ * write bumps a version for the id's stripe before it touches the entry, and a load stores what it read only if
+ * that version has not moved since before its query; a row read before a write committed can't be left behind.
+ * Two readers missing the same id at once may both go to the database.
+ *
+ * Writes made behind the service's back (another instance, a manual UPDATE) are only picked up once the entry
+ * expires, after ttlSeconds.
+ */
+public class MessageCache {
+
+    // messages held at once; 0 turns the cache off
+    public static final long MAX_SIZE = Long.getLong("socialmedia.messages.cache.maxSize", 100_000L);
+    // how long an entry, found or missing, is trusted
+    public static final long TTL_SECONDS = Long.getLong("socialmedia.messages.cache.ttlSeconds", 300L);
+    public static final boolean ENABLED = MAX_SIZE > 0;
+
+    // stands in for an id with no message
+    private static final Message MISSING = new Message();
+
+    private static final int STRIPES = 256;
+
+    private final Cache<Integer, Message> messages;
+    // bumped by every write to an id on the stripe
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    // reads one message from the database, null if there is none
+    public interface Loader {
+        Message load() throws SQLException;
+    }
+
+    public MessageCache() {
+        this(MAX_SIZE, TTL_SECONDS);
+    }
+
+    public MessageCache(long maxSize, long ttlSeconds) {
+        this.messages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    // the message with this id, or null if there is none, reading through to the database on a miss
+    public Message get(int messageId, Loader loader) throws SQLException {
+        Message cached = messages.getIfPresent(messageId);
+        if (cached == null) {
+            int stripe = stripeFor(messageId);
+            long version = versions.get(stripe);
+            Message loaded = loader.load();
+            Message value = loaded == null ? MISSING : copy(loaded);
+            // a write since the read may have made it stale, and one already cached by another reader is as good
+            messages.asMap().compute(messageId,
+                    (id, existing) -> existing == null && versions.get(stripe) == version ? value : existing);
+            cached = value;
+        }
+        return cached == MISSING ? null : copy(cached);
+    }
+
+    // a message was created; forget that its id was missing
+    public void created(int messageId) {
+        versions.incrementAndGet(stripeFor(messageId));
+        messages.invalidate(messageId);
+    }
+
+    // a message's text changed; the next read goes to the database
+    public void updated(int messageId) {
+        versions.incrementAndGet(stripeFor(messageId));
+        messages.invalidate(messageId);
+    }
+
+    // a message was deleted; its id stays missing for good
+    public void deleted(int messageId) {
+        versions.incrementAndGet(stripeFor(messageId));
+        messages.put(messageId, MISSING);
+    }
+
+    /**
+     * @return hit, miss and eviction counts
+     */
+    public CacheStats getStats() {
+        return messages.stats();
+    }
+
+    /**
+     * @return number of ids cached, found or missing
+     */
+    public long getSize() {
+        return messages.estimatedSize();
+    }
+
+    private static Message copy(Message message) {
+        return new Message(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                message.getTime_posted_epoch());
+    }
+
+    private static int stripeFor(int messageId) {
+        return Math.floorMod(messageId, STRIPES);
+    }
+}
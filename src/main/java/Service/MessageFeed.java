@@ -0,0 +1,258 @@
+package Service;
+
+import Model.Message;
+import Model.MessageEvent;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process fan-out of message changes to push subscribers (GET /messages/stream and the WebSocket feed), so
+ * clients can wait for new posts instead of polling the full listing.
+ *
+ * MessageService publishes every create, update and delete once it has committed. Publishing never blocks: each
+ * subscriber has a bounded queue, and one that lets its queue fill up is dropped on the spot. Each subscriber is
+ * drained by a virtual thread of its own, so a client that reads slowly only ever holds up itself.
+ *
+ * A subscriber may resume from the last message_id it saw. It is registered before the replay starts, so nothing
+ * committed in between is lost: messages created after that id are read back from the database page by page, in
+ * message_id order. A live create at or below the replay's position is skipped as already sent, except within the
+ * last page read, where it is skipped only if that page held it, so a create that committed just after a higher id
+ * was replayed still gets through; only the last page's ids are kept for this, so a resume costs a page's worth of
+ * memory however far back it starts. Between pages the subscriber drains its own queue, so however far behind it starts
+ * it never holds more than a page's worth of live events: what concerns a message past the replay is dropped,
+ * since a later page reads that message as committed, and the rest is sent. Updates and deletes made while a
+ * client was away are not replayed. A dropped client gets the same treatment when it reconnects, so dropping costs
+ * a catch-up, not data.
+ */
+public class MessageFeed {
+
+    // events a subscriber may fall behind by before it is dropped
+    public static final int QUEUE_CAPACITY = Integer.getInteger("socialmedia.feed.queueCapacity", 1024);
+    // quiet time after which a subscriber is sent a heartbeat, which also notices clients that went away
+    public static final long HEARTBEAT_SECONDS = Long.getLong("socialmedia.feed.heartbeatSeconds", 15L);
+    // messages read per query while a subscriber catches up
+    public static final int REPLAY_PAGE_SIZE = Integer.getInteger("socialmedia.feed.replayPageSize", 500);
+
+    // wakes a delivery thread whose subscription was closed
+    private static final MessageEvent WAKEUP = new MessageEvent();
+
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final int queueCapacity;
+    private final long heartbeatNanos;
+    private final int replayPageSize;
+    private final AtomicLong nextId = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // where a subscriber's events go; called from its delivery thread only
+    public interface Sink {
+        void send(MessageEvent event) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        // the feed is done with this sink; dropped is true if it fell too far behind
+        void close(boolean dropped);
+    }
+
+    // reads up to limit messages with message_id above afterId, in message_id order
+    public interface Replay {
+        List<Message> after(int afterId, int limit) throws SQLException;
+    }
+
+    public MessageFeed() {
+        this(QUEUE_CAPACITY, HEARTBEAT_SECONDS);
+    }
+
+    public MessageFeed(int queueCapacity, long heartbeatSeconds) {
+        this(queueCapacity, heartbeatSeconds, REPLAY_PAGE_SIZE);
+    }
+
+    public MessageFeed(int queueCapacity, long heartbeatSeconds, int replayPageSize) {
+        this.queueCapacity = queueCapacity;
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+        this.replayPageSize = replayPageSize;
+    }
+
+    /**
+     * Start sending events to the sink. When afterId is not null, messages created after it are replayed first.
+     *
+     * @return the subscription, to be closed when the client goes away
+     */
+    public Subscription subscribe(Sink sink, Integer afterId, Replay replay) {
+        Subscription subscription = new Subscription(sink, afterId, replay);
+        subscribers.add(subscription);
+        Thread.ofVirtual().name("message-feed-" + nextId.incrementAndGet()).start(subscription::deliver);
+        return subscription;
+    }
+
+    // a message was created, after its insert committed
+    public void created(Message message) {
+        publish(new MessageEvent(MessageEvent.CREATED, message));
+    }
+
+    // a message's text changed, after the update committed
+    public void updated(Message message) {
+        publish(new MessageEvent(MessageEvent.UPDATED, message));
+    }
+
+    // a message was deleted, after the delete committed
+    public void deleted(Message message) {
+        publish(new MessageEvent(MessageEvent.DELETED, message));
+    }
+
+    // close every subscription, when the server stops
+    public void close() {
+        for (Subscription subscription : subscribers) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * @return number of subscribers currently connected
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return number of events published since startup
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return number of subscribers dropped for falling behind
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void publish(MessageEvent event) {
+        published.increment();
+        for (Subscription subscription : subscribers) {
+            if (!subscription.queue.offer(event)) {
+                subscription.drop();
+            }
+        }
+    }
+
+    // one subscriber's queue and the loop that drains it into its sink
+    public class Subscription {
+        private final Sink sink;
+        private final Integer afterId;
+        private final Replay replay;
+        private final BlockingQueue<MessageEvent> queue;
+        private volatile boolean closed;
+        private volatile boolean overflowed;
+        // the message_id the last replay page was read after, and the ids that page held, in order; null once
+        // the replay's creates have all been published. Only the delivery thread touches them
+        private int pageAfter;
+        private int[] pageIds;
+
+        Subscription(Sink sink, Integer afterId, Replay replay) {
+            this.sink = sink;
+            this.afterId = afterId;
+            this.replay = replay;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        // stop delivering; safe to call more than once and from any thread
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            queue.offer(WAKEUP);
+        }
+
+        private void drop() {
+            if (!closed) {
+                overflowed = true;
+                dropped.increment();
+                close();
+            }
+        }
+
+        private void deliver() {
+            try {
+                if (afterId != null) {
+                    catchUp(afterId);
+                }
+                while (!closed) {
+                    MessageEvent event = queue.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    if (event == null) {
+                        // a quiet spell: every create the replay read has long since been published
+                        pageIds = null;
+                        sink.heartbeat();
+                    } else if (!wasReplayed(event)) {
+                        sink.send(event);
+                    }
+                }
+            } catch (IOException | SQLException | InterruptedException e) {
+                // the client went away or the replay failed; either way it reconnects and resumes
+            } finally {
+                close();
+                sink.close(overflowed);
+            }
+        }
+
+        // send every message created after afterId, page by page, taking in live events between pages
+        private void catchUp(int afterId) throws SQLException, IOException {
+            int last = afterId;
+            while (!closed) {
+                List<Message> page = replay.after(last, replayPageSize);
+                pageAfter = last;
+                pageIds = new int[page.size()];
+                for (int i = 0; i < pageIds.length; i++) {
+                    Message message = page.get(i);
+                    sink.send(new MessageEvent(MessageEvent.CREATED, message));
+                    pageIds[i] = message.getMessage_id();
+                    last = message.getMessage_id();
+                }
+                if (page.size() < replayPageSize) {
+                    break;
+                }
+                drainBehind(last);
+            }
+        }
+
+        // empty the queue mid-replay: events about messages past the replay are left to the pages still to come,
+        // which read those messages as committed, and the rest are sent now
+        private void drainBehind(int last) throws IOException {
+            MessageEvent event;
+            while ((event = queue.poll()) != null && !closed) {
+                if (event.getMessage().getMessage_id() <= last && !wasReplayed(event)) {
+                    sink.send(event);
+                }
+            }
+        }
+
+        // a live create for a message the replay already sent
+        private boolean wasReplayed(MessageEvent event) {
+            if (pageIds == null || !event.getType().equals(MessageEvent.CREATED)) {
+                return false;
+            }
+            int id = event.getMessage().getMessage_id();
+            if (id <= pageAfter) {
+                // an earlier page read it
+                return id > afterId;
+            }
+            return Arrays.binarySearch(pageIds, id) >= 0;
+        }
+    }
+}
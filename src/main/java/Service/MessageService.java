@@ -1,34 +1,239 @@
 package Service;
 
 import DAO.MessageDAO;
-import DAO.AccountDAO;
+import DAO.MessageCursor;
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class MessageService {
+
+    // largest page a client may ask for in one request
+    public static final int MAX_PAGE_SIZE = Integer.getInteger("socialmedia.messages.page.max", 1000);
+    // page size used when the client passes a cursor but no limit
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("socialmedia.messages.page.default", 100);
+    // most messages accepted by one batch insert
+    public static final int MAX_BATCH_SIZE = Integer.getInteger("socialmedia.messages.batch.max", 500);
+    // most results one search returns
+    public static final int MAX_SEARCH_RESULTS = Integer.getInteger("socialmedia.search.maxResults", 100);
     
     private MessageDAO messageDAO;
-    private AccountDAO accountDAO;
+    // when set, single message creates are group-committed through it instead of inserted one by one
+    private MessageWriteBuffer writeBuffer;
+    // when set, per-user listings are served from memory and every write below keeps it in step
+    private TimelineIndex timelineIndex;
+    // when set, single message reads are served from it and every write below keeps it in step
+    private MessageCache messageCache;
+    // when set, searches are answered from it and every write below keeps it in step
+    private SearchIndex searchIndex;
+    // an update or delete holds its message's lock from the statement until the search index has it, so the index
+    // sees one message's changes in the order they committed; an update removes the terms its text lost, and one
+    // applied out of order could remove a term the newer text has
+    private final Object[] searchLocks = new Object[64];
+    // ETag counters, bumped by every write below once it has committed
+    private final MessageVersions versions = new MessageVersions();
+    // push subscribers, told about every write below once it has committed
+    private final MessageFeed feed = new MessageFeed();
+
+    public MessageService(MessageDAO messageDAO) {
+        this(messageDAO, null);
+    }
 
-    public MessageService(MessageDAO messageDAO, AccountDAO accountDAO) {
+    public MessageService(MessageDAO messageDAO, MessageWriteBuffer writeBuffer) {
+        this(messageDAO, writeBuffer, TimelineIndex.ENABLED ? new TimelineIndex() : null);
+    }
+
+    public MessageService(MessageDAO messageDAO, MessageWriteBuffer writeBuffer, TimelineIndex timelineIndex) {
+        this(messageDAO, writeBuffer, timelineIndex, MessageCache.ENABLED ? new MessageCache() : null);
+    }
+
+    public MessageService(MessageDAO messageDAO, MessageWriteBuffer writeBuffer, TimelineIndex timelineIndex,
+                          MessageCache messageCache) {
+        this(messageDAO, writeBuffer, timelineIndex, messageCache, SearchIndex.ENABLED ? new SearchIndex() : null);
+    }
+
+    public MessageService(MessageDAO messageDAO, MessageWriteBuffer writeBuffer, TimelineIndex timelineIndex,
+                          MessageCache messageCache, SearchIndex searchIndex) {
         this.messageDAO = messageDAO;
-        this.accountDAO = accountDAO;
+        this.writeBuffer = writeBuffer;
+        this.timelineIndex = timelineIndex;
+        this.messageCache = messageCache;
+        this.searchIndex = searchIndex;
+        for (int i = 0; i < searchLocks.length; i++) {
+            searchLocks[i] = new Object();
+        }
     }
 
     // create a new message
     public Message createMessage(Message message) throws SQLException {
         // check if message is valid
-        if (message.getMessage_text().isBlank() || message.getMessage_text().length() > 255) {
+        if (!isValidText(message.getMessage_text())) {
             throw new IllegalArgumentException("Invalid message text.");
         }
 
-        // check if user is valid
-        if (accountDAO.getAccountById(message.getPosted_by()) == null) {
-            throw new IllegalArgumentException("Invalid user.");
+        // the insert itself rejects an unknown posted_by through the foreign key, so no lookup is needed first
+        if (writeBuffer != null) {
+            return awaitGroupCommit(message);
+        }
+        Message created = timelineIndex == null
+                ? messageDAO.createMessage(message)
+                : timelineIndex.create(message.getPosted_by(), () -> messageDAO.createMessage(message));
+        created(created);
+        return created;
+    }
+
+    // everything a committed create has to reach besides the table; the timeline is kept in step by the caller
+    private void created(Message created) {
+        if (messageCache != null) {
+            messageCache.created(created.getMessage_id());
+        }
+        if (searchIndex != null) {
+            searchIndex.added(created);
+        }
+        versions.created(created.getMessage_id(), created.getPosted_by());
+        feed.created(created);
+    }
+
+    // wait for the write buffer to flush our message, rethrowing the failure the caller would have seen directly.
+    // A flush that takes too long is reported as a timeout, though the message may still be written after it, so
+    // the bookkeeping is chained onto the flush itself and runs when the message commits, whether or not this
+    // caller is still waiting
+    private Message awaitGroupCommit(Message message) throws SQLException {
+        try {
+            return writeBuffer.submit(message)
+                    .thenApply(created -> {
+                        if (timelineIndex != null) {
+                            timelineIndex.invalidate(created.getPosted_by());
+                        }
+                        created(created);
+                        return created;
+                    })
+                    .get(writeBuffer.getAwaitTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("Timed out waiting for group commit.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for group commit.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
         }
+    }
+
+    // the group-commit buffer, or null when creates go straight to the DAO
+    public MessageWriteBuffer getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    // the in-memory per-user listings, or null when they are switched off
+    public TimelineIndex getTimelineIndex() {
+        return timelineIndex;
+    }
 
-        return messageDAO.createMessage(message);
+    // the single-message cache, or null when it is switched off
+    public MessageCache getMessageCache() {
+        return messageCache;
+    }
+
+    // the full-text index, or null when searches scan the table
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    // index every stored message; called once at startup, before requests are taken
+    public void rebuildSearchIndex() throws SQLException {
+        if (searchIndex != null) {
+            try (MessageCursor cursor = messageDAO.openAllMessages()) {
+                searchIndex.rebuild(cursor);
+            }
+        }
+    }
+
+    // the counters the message ETags are made from
+    public MessageVersions getVersions() {
+        return versions;
+    }
+
+    // the fan-out behind the push endpoints
+    public MessageFeed getFeed() {
+        return feed;
+    }
+
+    // push every change from now on to the sink, after first replaying messages created after afterId, if given;
+    // each replay page is read on the executor, so a burst of reconnecting subscribers is admitted like any other
+    // query instead of taking a pooled connection apiece, and one turned away is closed and reconnects later
+    public MessageFeed.Subscription subscribe(MessageFeed.Sink sink, Integer afterId, Executor replayExecutor) {
+        return feed.subscribe(sink, afterId, (after, limit) -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return messageDAO.getMessagesAfter(after, limit);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, replayExecutor).join();
+            } catch (RejectedExecutionException e) {
+                throw new SQLTransientException("Replay was not admitted.", e);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw e;
+            }
+        });
+    }
+
+    // create a batch of messages in one transaction; the results line up with the input, one per message
+    public List<MessageBatchResult> createMessages(List<Message> messages) throws SQLException {
+        if (messages.isEmpty() || messages.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE + ".");
+        }
+
+        // the same text rules as createMessage; the DAO reports unknown authors per message
+        List<Message> valid = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (message != null && isValidText(message.getMessage_text())) {
+                valid.add(message);
+            }
+        }
+        int[] ids = valid.isEmpty() ? new int[0] : messageDAO.createMessages(valid);
+
+        List<MessageBatchResult> results = new ArrayList<>(messages.size());
+        int next = 0;
+        for (Message message : messages) {
+            if (message == null || !isValidText(message.getMessage_text())) {
+                results.add(MessageBatchResult.rejected("Invalid message text."));
+            } else {
+                int id = ids[next++];
+                results.add(id > 0 ? MessageBatchResult.created(id) : MessageBatchResult.rejected("Invalid user."));
+                if (id > 0 && timelineIndex != null) {
+                    timelineIndex.invalidate(message.getPosted_by());
+                }
+                if (id > 0) {
+                    created(new Message(id, message.getPosted_by(), message.getMessage_text(),
+                            message.getTime_posted_epoch()));
+                }
+            }
+        }
+        return results;
     }
 
     // retrieve all messages
@@ -36,28 +241,178 @@ public class MessageService {
         return messageDAO.getAllMessages();
     }
 
+    // stream all messages; the caller must close the cursor
+    public MessageCursor streamAllMessages() throws SQLException {
+        return messageDAO.openAllMessages();
+    }
+
+    // stream the messages posted in [since, until), in time order; a null bound is open; the caller must close the cursor
+    public MessageCursor streamMessagesInRange(Long since, Long until) throws SQLException {
+        checkRange(since, until);
+        return messageDAO.openMessagesInRange(since, until);
+    }
+
+    // retrieve one page of messages after the given cursor
+    public MessagePage getMessagesPage(int afterId, int limit) throws SQLException {
+        int pageSize = clampPageSize(limit);
+        return toPage(messageDAO.getMessagesAfter(afterId, pageSize + 1), pageSize);
+    }
+
+    // up to limit of the newest messages containing every word of the query
+    public List<Message> searchMessages(String query, int limit) throws SQLException {
+        List<String> terms = SearchIndex.terms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            throw new IllegalArgumentException("Invalid search.");
+        }
+        int results = Math.min(limit, MAX_SEARCH_RESULTS);
+        if (searchIndex != null) {
+            return searchIndex.search(terms, results, messageDAO::getMessagesByIds);
+        }
+        return messageDAO.searchMessages(terms, results);
+    }
+
     // get message by ID
     public Message getMessageById(int messageId) throws SQLException {
+        if (messageCache != null) {
+            return messageCache.get(messageId, () -> messageDAO.getMessageById(messageId));
+        }
         return messageDAO.getMessageById(messageId);
     }
 
     // delete message by ID
     public Message deleteMessageById(int messageId) throws SQLException {
-        return messageDAO.deleteMessageById(messageId);
+        return deleteMessageById(messageId, null);
+    }
+
+    // delete a message by ID on behalf of postedBy; someone else's message is treated as not found
+    public Message deleteMessageById(int messageId, Integer postedBy) throws SQLException {
+        Message deleted;
+        if (searchIndex == null) {
+            deleted = messageDAO.deleteMessageById(messageId, postedBy);
+        } else {
+            synchronized (searchLock(messageId)) {
+                deleted = messageDAO.deleteMessageById(messageId, postedBy);
+                if (deleted != null) {
+                    searchIndex.removed(deleted);
+                }
+            }
+        }
+        if (deleted != null && timelineIndex != null) {
+            timelineIndex.deleted(deleted);
+        }
+        if (deleted != null && messageCache != null) {
+            messageCache.deleted(messageId);
+        }
+        if (deleted != null) {
+            versions.changed(messageId, deleted.getPosted_by());
+            feed.deleted(deleted);
+        }
+        return deleted;
     }
 
     // update message text
     public Message updateMessage(int messageId, String newMessageText) throws SQLException {
-        // check if message exists, is blank, or if length is greater than 255
-        if (messageDAO.getMessageById(messageId) == null || newMessageText.isBlank() || newMessageText.length() > 255) {
-            return null;  
+        return updateMessage(messageId, newMessageText, null);
+    }
+
+    // update message text on behalf of postedBy; someone else's message is treated as not found
+    public Message updateMessage(int messageId, String newMessageText, Integer postedBy) throws SQLException {
+        // check if the new text is blank or if length is greater than 255
+        if (!isValidText(newMessageText)) {
+            return null;
         }
 
-        return messageDAO.updateMessage(messageId, newMessageText);
+        // returns null when the message does not exist; the update and the read-back are one statement
+        Message updated;
+        if (searchIndex == null) {
+            updated = messageDAO.updateMessage(messageId, newMessageText, postedBy);
+        } else {
+            synchronized (searchLock(messageId)) {
+                // the row as it was differs from the updated one only in its text, and tells the index which terms
+                // the message lost
+                Message previous = messageDAO.replaceMessageText(messageId, newMessageText, postedBy);
+                updated = previous == null ? null : new Message(previous.getMessage_id(), previous.getPosted_by(),
+                        newMessageText, previous.getTime_posted_epoch());
+                if (updated != null) {
+                    searchIndex.updated(previous, updated);
+                }
+            }
+        }
+        if (updated != null && timelineIndex != null) {
+            timelineIndex.invalidate(updated.getPosted_by());
+        }
+        if (updated != null && messageCache != null) {
+            messageCache.updated(messageId);
+        }
+        if (updated != null) {
+            versions.changed(messageId, updated.getPosted_by());
+            feed.updated(updated);
+        }
+        return updated;
     }
 
     // retrieve all messages posted by a particular user
     public List<Message> getMessagesByUserId(int userId) throws SQLException {
-        return messageDAO.getMessagesByUserId(userId);
+        List<Message> timeline = timelineIndex == null ? null : timelineIndex.messages(userId, timelineLoader(userId));
+        return timeline != null ? timeline : messageDAO.getMessagesByUserId(userId);
+    }
+
+    // stream all messages posted by a particular user; the caller must close the cursor
+    public MessageCursor streamMessagesByUserId(int userId) throws SQLException {
+        List<Message> timeline = timelineIndex == null ? null : timelineIndex.messages(userId, timelineLoader(userId));
+        return timeline != null ? MessageCursor.of(timeline) : messageDAO.openMessagesByUserId(userId);
+    }
+
+    // stream a particular user's messages posted in [since, until), in time order; the caller must close the cursor
+    public MessageCursor streamMessagesByUserIdInRange(int userId, Long since, Long until) throws SQLException {
+        checkRange(since, until);
+        return messageDAO.openMessagesByUserIdInRange(userId, since, until);
+    }
+
+    // retrieve one page of a particular user's messages after the given cursor
+    public MessagePage getMessagesPageByUserId(int userId, int afterId, int limit) throws SQLException {
+        int pageSize = clampPageSize(limit);
+        List<Message> rows = timelineIndex == null ? null
+                : timelineIndex.page(userId, afterId, pageSize + 1, timelineLoader(userId));
+        if (rows == null) {
+            rows = messageDAO.getMessagesByUserIdAfter(userId, afterId, pageSize + 1);
+        }
+        return toPage(rows, pageSize);
+    }
+
+    // what the timeline index reads when it starts tracking an account
+    private TimelineIndex.Loader timelineLoader(int userId) {
+        return limit -> messageDAO.getMessagesByUserIdAfter(userId, 0, limit);
+    }
+
+    // message text must not be blank and must fit the column
+    private static boolean isValidText(String messageText) {
+        return messageText != null && !messageText.isBlank() && messageText.length() <= 255;
+    }
+
+    private static void checkRange(Long since, Long until) {
+        if (since != null && until != null && since > until) {
+            throw new IllegalArgumentException("Invalid time range.");
+        }
+    }
+
+    private static int clampPageSize(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page size.");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // the DAO is asked for one extra row so we can tell whether another page exists without a COUNT query
+    private static MessagePage toPage(List<Message> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new MessagePage(rows, null);
+        }
+        List<Message> page = rows.subList(0, pageSize);
+        return new MessagePage(page, page.get(pageSize - 1).getMessage_id());
+    }
+
+    private Object searchLock(int messageId) {
+        return searchLocks[Math.floorMod(messageId, searchLocks.length)];
     }
 }
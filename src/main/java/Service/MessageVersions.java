@@ -0,0 +1,74 @@
+package Service;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters behind the ETags on GET /messages, GET /messages/{message_id} and
+ * GET /accounts/{account_id}/messages, so a conditional GET can be answered with 304 from a couple of memory reads
+ * instead of a query and a serialization.
+ *
+ * - Each message_id maps onto one of a fixed number of striped counters, bumped whenever a message on that stripe
+ *   is created, updated or deleted. Ids sharing a stripe only cost each other the odd needless 200; they can never
+ *   cause a wrong 304.
+ * - The listing's tag combines the highest message_id created so far with a counter bumped on every write.
+ * - Each account's listing has a striped counter of its own, bumped by any write to one of its messages.
+ *
+ * MessageService bumps the counters after a write has committed and the controller reads them before it reads the
+ * data, so a response's tag can only be older than its body, never newer. Every tag starts with a random
+ * per-process epoch, since the counters start again from zero on restart. Tags are weak, since the same listing
+ * may be sent compressed or not.
+ */
+public class MessageVersions {
+
+    private static final int STRIPES = 4096;
+
+    private final String epoch;
+    private final AtomicLongArray messageVersions = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray accountVersions = new AtomicLongArray(STRIPES);
+    private final AtomicLong highWaterMark = new AtomicLong();
+    private final AtomicLong modifications = new AtomicLong();
+
+    public MessageVersions() {
+        this.epoch = Long.toString(new SecureRandom().nextLong() >>> 1, 36);
+    }
+
+    // a message was created, after its insert committed
+    public void created(int messageId, int postedBy) {
+        highWaterMark.accumulateAndGet(messageId, Math::max);
+        changed(messageId, postedBy);
+    }
+
+    // a message was updated or deleted, after the statement committed
+    public void changed(int messageId, int postedBy) {
+        messageVersions.incrementAndGet(stripe(messageId));
+        accountVersions.incrementAndGet(stripe(postedBy));
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * @return the current entity tag for one message
+     */
+    public String messageTag(int messageId) {
+        return "W/\"" + epoch + "-m" + messageId + "-" + messageVersions.get(stripe(messageId)) + "\"";
+    }
+
+    /**
+     * @return the current entity tag for the message listing
+     */
+    public String listingTag() {
+        return "W/\"" + epoch + "-l" + highWaterMark.get() + "-" + modifications.get() + "\"";
+    }
+
+    /**
+     * @return the current entity tag for one account's message listing
+     */
+    public String accountTag(int accountId) {
+        return "W/\"" + epoch + "-a" + accountId + "-" + accountVersions.get(stripe(accountId)) + "\"";
+    }
+
+    private static int stripe(int id) {
+        return id & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,215 @@
+package Service;
+
+import DAO.MessageDAO;
+import Model.Message;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for message creation. Callers queue their message and get a future back; a single flusher thread
+ * drains the queue and inserts whatever has accumulated as one batched transaction, as soon as either maxBatch
+ * messages are waiting or maxDelay has passed since the first of them arrived. Each future completes with the
+ * message and its generated message_id, or exceptionally with the reason it was rejected.
+ *
+ * This trades up to maxDelay of extra latency per write for far fewer commits under a burst of writes.
+ */
+public class MessageWriteBuffer implements AutoCloseable {
+
+    // group commit is off unless switched on
+    public static final boolean ENABLED = Boolean.getBoolean("socialmedia.messages.groupCommit");
+    // flush once this many messages are waiting
+    public static final int MAX_BATCH = Integer.getInteger("socialmedia.messages.groupCommit.maxBatch", 64);
+    // flush once the oldest waiting message has waited this long
+    public static final long MAX_DELAY_MICROS = Long.getLong("socialmedia.messages.groupCommit.maxDelayMicros", 500L);
+    // callers block once this many messages are queued
+    public static final int QUEUE_CAPACITY = Integer.getInteger("socialmedia.messages.groupCommit.queueCapacity", 10_000);
+    // longest a caller waits for its message to be flushed before giving up on it
+    public static final long AWAIT_TIMEOUT_MILLIS = Long.getLong("socialmedia.messages.groupCommit.awaitTimeoutMs", 10_000L);
+
+    private final MessageDAO messageDAO;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final long awaitTimeoutMillis;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+    // submits enqueue under the read lock and close() stops them under the write lock, so once close() has set
+    // running to false nothing more is queued behind the flusher's last drain
+    private final ReadWriteLock state = new ReentrantReadWriteLock();
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushedMessages = new LongAdder();
+    private final AtomicLong lastFlushSize = new AtomicLong();
+    private final AtomicLong maxFlushSize = new AtomicLong();
+
+    public MessageWriteBuffer(MessageDAO messageDAO) {
+        this(messageDAO, MAX_BATCH, MAX_DELAY_MICROS, QUEUE_CAPACITY);
+    }
+
+    public MessageWriteBuffer(MessageDAO messageDAO, int maxBatch, long maxDelayMicros, int queueCapacity) {
+        this(messageDAO, maxBatch, maxDelayMicros, queueCapacity, AWAIT_TIMEOUT_MILLIS);
+    }
+
+    public MessageWriteBuffer(MessageDAO messageDAO, int maxBatch, long maxDelayMicros, int queueCapacity,
+                              long awaitTimeoutMillis) {
+        this.messageDAO = messageDAO;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::run, "message-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // queue a message for the next flush; blocks while the queue is full
+    public CompletableFuture<Message> submit(Message message) throws InterruptedException {
+        PendingMessage pending = new PendingMessage(message);
+        state.readLock().lockInterruptibly();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Write buffer is closed.");
+            }
+            queue.put(pending);
+        } finally {
+            state.readLock().unlock();
+        }
+        return pending.result;
+    }
+
+    // longest a caller waits for its message to be flushed
+    public long getAwaitTimeoutMillis() {
+        return awaitTimeoutMillis;
+    }
+
+    /**
+     * @return number of messages waiting for the next flush
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of batches flushed since startup
+     */
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    /**
+     * @return number of messages flushed since startup
+     */
+    public long getFlushedMessages() {
+        return flushedMessages.sum();
+    }
+
+    /**
+     * @return size of the most recent flush
+     */
+    public long getLastFlushSize() {
+        return lastFlushSize.get();
+    }
+
+    /**
+     * @return size of the largest flush since startup
+     */
+    public long getMaxFlushSize() {
+        return maxFlushSize.get();
+    }
+
+    // stop accepting messages, flush what is already queued and stop the flusher thread; the flusher is not
+    // interrupted, since interrupting a thread in the middle of H2 file I/O can close the database file. Anything
+    // the flusher has not taken by the time the wait runs out is failed, so no caller is left waiting on it.
+    @Override
+    public void close() {
+        state.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            state.writeLock().unlock();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingMessage pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new SQLException("Write buffer closed before the message was written."));
+        }
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            messages.add(pending.message);
+        }
+        // counted before any caller is woken, so a caller that sees its message written also sees the flush
+        flushCount.increment();
+        flushedMessages.add(batch.size());
+        lastFlushSize.set(batch.size());
+        maxFlushSize.accumulateAndGet(batch.size(), Math::max);
+        try {
+            int[] ids = messageDAO.createMessages(messages);
+            for (int i = 0; i < ids.length; i++) {
+                PendingMessage pending = batch.get(i);
+                if (ids[i] > 0) {
+                    pending.result.complete(pending.message);
+                } else {
+                    pending.result.completeExceptionally(new IllegalArgumentException("Invalid user."));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (PendingMessage pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class PendingMessage {
+        final Message message;
+        final CompletableFuture<Message> result = new CompletableFuture<>();
+
+        PendingMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
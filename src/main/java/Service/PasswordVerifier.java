@@ -0,0 +1,212 @@
+package Service;
+
+import Util.PasswordHasher;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Runs password hashing and verification on a small pool of CPU threads, one per core by default, with a bounded
+ * queue. A slow hash is pure CPU, so running more of them at once than there are cores only makes every login
+ * slower; when the queue is full, callers get a RejectedExecutionException straight away.
+ *
+ * Successful verifications are remembered for a short while, keyed by the stored hash, as an HMAC of the password
+ * under a key that exists only in this process. A client logging in again with the same password within the TTL
+ * is checked with one HMAC instead of a full PBKDF2 run. Failed attempts are never cached, so guessing still pays
+ * full price, and a rehash or password change gives the account a new stored hash that nothing is cached under.
+ *
+ * A login for a username that does not exist is checked against a hash of a random password, made at the current
+ * cost when the verifier starts, so it takes as long as a wrong password for a real account and the response time
+ * does not tell a caller which usernames are registered.
+ */
+public class PasswordVerifier implements AutoCloseable {
+
+    // concurrent hashes; more than the core count just queues inside the OS scheduler
+    public static final int THREADS = Integer.getInteger("socialmedia.passwords.threads",
+            Runtime.getRuntime().availableProcessors());
+    // hashes waiting for a thread before callers are turned away
+    public static final int QUEUE_CAPACITY = Integer.getInteger("socialmedia.passwords.queueCapacity", 256);
+    // how long a successful verification is remembered; 0 turns the cache off
+    public static final long VERIFIED_TTL_SECONDS = Long.getLong("socialmedia.passwords.verifiedCache.ttlSeconds", 300L);
+    // most verifications remembered at once
+    public static final long VERIFIED_MAX_SIZE = Long.getLong("socialmedia.passwords.verifiedCache.maxSize", 10_000L);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor pool;
+    private final Cache<String, byte[]> verified;
+    private final SecretKeySpec macKey;
+    private final CompletableFuture<String> missingAccountHash;
+
+    public PasswordVerifier() {
+        this(new PasswordHasher(), THREADS, QUEUE_CAPACITY, VERIFIED_TTL_SECONDS);
+    }
+
+    public PasswordVerifier(PasswordHasher hasher, int threads, int queueCapacity, long verifiedTtlSeconds) {
+        this.hasher = hasher;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.verified = verifiedTtlSeconds > 0
+                ? Caffeine.newBuilder()
+                        .expireAfterWrite(Duration.ofSeconds(verifiedTtlSeconds))
+                        .maximumSize(VERIFIED_MAX_SIZE)
+                        .recordStats()
+                        .build()
+                : null;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.macKey = new SecretKeySpec(key, MAC_ALGORITHM);
+        byte[] password = new byte[16];
+        new SecureRandom().nextBytes(password);
+        this.missingAccountHash = CompletableFuture.supplyAsync(
+                () -> hasher.hash(Base64.getEncoder().encodeToString(password)), pool);
+    }
+
+    // hash a new password on the CPU pool
+    public String hash(String password) {
+        return await(() -> hasher.hash(password));
+    }
+
+    // hash many passwords, for a bulk import; at most inFlight of them are on the pool at once, so logins queued
+    // behind them wait for a few hashes rather than the whole list
+    public List<String> hashAll(List<String> passwords, int inFlight) {
+        List<String> hashes = new ArrayList<>(passwords.size());
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        for (String password : passwords) {
+            if (pending.size() >= inFlight) {
+                hashes.add(await(pending.removeFirst()));
+            }
+            pending.addLast(pool.submit(() -> hasher.hash(password)));
+        }
+        while (!pending.isEmpty()) {
+            hashes.add(await(pending.removeFirst()));
+        }
+        return hashes;
+    }
+
+    // hash a new password on the CPU pool, completing on a pool thread; RejectedExecutionException straight away
+    // if the pool is saturated
+    public CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> hasher.hash(password), pool);
+    }
+
+    // check a password against what is stored for the account, on the CPU pool unless recently verified
+    public boolean verify(String password, String stored) {
+        return await(verifyAsync(password, stored));
+    }
+
+    // as verify, but completing on a pool thread instead of holding the caller's thread while the hash runs;
+    // RejectedExecutionException straight away if the pool is saturated
+    public CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        if (password == null || stored == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        byte[] mac = verified == null ? null : mac(password);
+        if (mac != null) {
+            byte[] remembered = verified.getIfPresent(stored);
+            if (remembered != null && MessageDigest.isEqual(remembered, mac)) {
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> hasher.verify(password, stored), pool).thenApply(matches -> {
+            if (matches && mac != null) {
+                verified.put(stored, mac);
+            }
+            return matches;
+        });
+    }
+
+    // spend a full verification on a login for a username that does not exist, and fail it
+    public CompletableFuture<Boolean> verifyMissingAsync(String password) {
+        if (password == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return missingAccountHash.thenCompose(stored -> verifyAsync(password, stored)).thenApply(matches -> false);
+    }
+
+    // whether the stored value should be replaced with a fresh hash at the current cost
+    public boolean needsRehash(String stored) {
+        return hasher.needsRehash(stored);
+    }
+
+    /**
+     * @return hit and miss counts for remembered verifications, empty if that cache is off
+     */
+    public CacheStats getVerifiedCacheStats() {
+        return verified == null ? CacheStats.empty() : verified.stats();
+    }
+
+    /**
+     * @return number of hashes waiting for a CPU thread
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // run the task on the pool and wait for it; RejectedExecutionException if the pool is saturated
+    private <T> T await(Callable<T> task) {
+        return await(pool.submit(task));
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for a password hash.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private byte[] mac(String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 is a required algorithm on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
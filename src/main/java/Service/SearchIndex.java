@@ -0,0 +1,401 @@
+package Service;
+
+import DAO.MessageCursor;
+import Model.Message;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process inverted index over message_text, behind GET /messages/search. Text is split into lowercase runs of
+ * letters and digits, and each term maps to the ids of the messages containing it. Ids are kept sorted and stored
+ * as variable-length deltas, so a term found in consecutive messages costs about a byte per message, with a skip
+ * entry every 128 ids. A search walks its rarest term's ids from the highest down, a block at a time, and probes the
+ * other terms through their skip entries. The newest matches come first, and a search stops decoding as soon as it
+ * has enough.
+ *
+ * MessageService keeps the index in step once each write has committed. Creates are appended, deletes are removed
+ * using the deleted row's text, and an update touches only the terms its text gained or lost, using the text it
+ * replaced. A term whose last id is removed is dropped. Inserting or removing an id below a term's newest re-encodes
+ * only the blocks from the one holding it, and that work is done under the term's own lock, not inside the map.
+ * MessageService applies one message's updates and deletes in the order they committed, but its create can still
+ * arrive after a quick first edit, so every hit is read back and checked against the message's current text before
+ * it is returned; a hit that fails is counted as stale.
+ */
+public class SearchIndex {
+
+    // the index is kept unless switched off, in which case searches scan the table
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("socialmedia.search.enabled", "true"));
+
+    // longer runs of letters and digits are cut to this many characters
+    private static final int MAX_TERM_LENGTH = 64;
+    // fewest candidates read back at once while checking hits
+    private static final int MIN_FETCH = 16;
+
+    private final Map<String, Postings> terms = new ConcurrentHashMap<>();
+    private final LongAdder staleHits = new LongAdder();
+
+    // reads back the messages with the given ids that still exist
+    public interface Fetcher {
+        List<Message> fetch(int[] ids) throws SQLException;
+    }
+
+    // the distinct terms of a text, lowercased, in order of first appearance
+    public static List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return new ArrayList<>(terms);
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(codePoint);
+                }
+            } else if (term.length() > 0) {
+                terms.add(term.toString().toLowerCase(Locale.ROOT));
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString().toLowerCase(Locale.ROOT));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // index every message the cursor returns, replacing what was indexed before; meant for startup, before writes
+    public void rebuild(MessageCursor cursor) throws SQLException {
+        terms.clear();
+        Message message;
+        while ((message = cursor.next()) != null) {
+            added(message);
+        }
+    }
+
+    // a committed create
+    public void added(Message message) {
+        int id = message.getMessage_id();
+        for (String term : terms(message.getMessage_text())) {
+            add(term, id);
+        }
+    }
+
+    // a committed update, with the message as it was before; only the terms that changed are touched
+    public void updated(Message previous, Message message) {
+        int id = message.getMessage_id();
+        List<String> before = terms(previous.getMessage_text());
+        List<String> after = terms(message.getMessage_text());
+        for (String term : before) {
+            if (!after.contains(term)) {
+                remove(term, id);
+            }
+        }
+        for (String term : after) {
+            if (!before.contains(term)) {
+                add(term, id);
+            }
+        }
+    }
+
+    // a committed delete, with the text the message had
+    public void removed(Message message) {
+        int id = message.getMessage_id();
+        for (String term : terms(message.getMessage_text())) {
+            remove(term, id);
+        }
+    }
+
+    /**
+     * @return up to limit messages containing every term, newest first
+     */
+    public List<Message> search(List<String> queryTerms, int limit, Fetcher fetcher) throws SQLException {
+        List<Snapshot> lists = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            lists.add(postings.snapshot());
+        }
+        // walk the rarest term's ids from the newest down, probing the others for each
+        lists.sort(Comparator.comparingInt(list -> list.count));
+        Snapshot driver = lists.get(0);
+        Lookup[] others = new Lookup[lists.size() - 1];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new Lookup(lists.get(i + 1));
+        }
+
+        List<Message> results = new ArrayList<>(limit);
+        int[] pending = new int[Math.max(MIN_FETCH, limit)];
+        int pendingCount = 0;
+        for (int block = driver.blockCount - 1; block >= 0 && results.size() < limit; block--) {
+            int[] ids = driver.block(block);
+            for (int i = ids.length - 1; i >= 0 && results.size() < limit; i--) {
+                if (!containedInAll(others, ids[i])) {
+                    continue;
+                }
+                pending[pendingCount++] = ids[i];
+                if (pendingCount >= Math.max(MIN_FETCH, limit - results.size())) {
+                    verify(Arrays.copyOf(pending, pendingCount), queryTerms, limit, fetcher, results);
+                    pendingCount = 0;
+                }
+            }
+        }
+        if (pendingCount > 0 && results.size() < limit) {
+            verify(Arrays.copyOf(pending, pendingCount), queryTerms, limit, fetcher, results);
+        }
+        return results;
+    }
+
+    /**
+     * @return number of distinct terms indexed
+     */
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * @return hits dropped at search time because the message was changed or deleted since it was indexed
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    private void add(String term, int id) {
+        Postings postings;
+        while (!(postings = terms.computeIfAbsent(term, key -> new Postings())).add(id)) {
+            // it emptied and is on its way out of the map; take it out ourselves and start a new one
+            terms.remove(term, postings);
+        }
+    }
+
+    private void remove(String term, int id) {
+        Postings postings = terms.get(term);
+        if (postings != null && postings.remove(id)) {
+            terms.remove(term, postings);
+        }
+    }
+
+    private static boolean containedInAll(Lookup[] lookups, int id) {
+        for (Lookup lookup : lookups) {
+            if (!lookup.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // read back candidates (newest first) and keep those whose current text still has every term
+    private void verify(int[] candidates, List<String> queryTerms, int limit, Fetcher fetcher, List<Message> results)
+            throws SQLException {
+        Map<Integer, Message> fetched = new HashMap<>();
+        for (Message message : fetcher.fetch(candidates)) {
+            fetched.put(message.getMessage_id(), message);
+        }
+        for (int i = 0; i < candidates.length && results.size() < limit; i++) {
+            Message message = fetched.get(candidates[i]);
+            if (message != null && terms(message.getMessage_text()).containsAll(queryTerms)) {
+                results.add(message);
+            } else {
+                staleHits.increment();
+            }
+        }
+    }
+
+    // one term's message ids; writers take the lock, searches read the current snapshot without it
+    private static class Postings {
+        private volatile Snapshot snapshot = new Snapshot();
+        // emptied by a remove and taken out of the map; nothing may be added to it after that
+        private boolean retired;
+
+        Snapshot snapshot() {
+            return snapshot;
+        }
+
+        // new ids are the largest so far, so this is nearly always an append; adding an id already present does
+        // nothing. False if these postings were retired, and the id belongs in new ones
+        synchronized boolean add(int id) {
+            if (retired) {
+                return false;
+            }
+            Snapshot current = snapshot;
+            if (current.count == 0 || id > current.last) {
+                snapshot = current.append(id);
+            } else if (!current.contains(id)) {
+                snapshot = current.edit(id, true);
+            }
+            return true;
+        }
+
+        // true if the term has no messages left, in which case these postings are retired
+        synchronized boolean remove(int id) {
+            Snapshot current = snapshot;
+            if (current.contains(id)) {
+                snapshot = current.edit(id, false);
+            }
+            retired = snapshot.count == 0;
+            return retired;
+        }
+    }
+
+    /**
+     * Sorted ids stored as varint-encoded gaps, in blocks of BLOCK ids. For each block, the skip table holds its byte
+     * offset, the id before it (the base its first gap is added to) and its first id, so any block decodes on its own.
+     *
+     * A snapshot never changes what it can see: an append writes past the end of the newest snapshot (into the same
+     * arrays, or copies when they are full) and returns a new snapshot covering it, and an edit copies the arrays
+     * before it writes. Only the newest snapshot of a term may be appended to.
+     */
+    private static final class Snapshot {
+        private static final int BLOCK = 128;
+
+        final byte[] bytes;
+        final int length;
+        final int count;
+        final int last;
+        final int[] skips;
+        final int blockCount;
+
+        Snapshot() {
+            this(new byte[4], 0, 0, 0, new int[3], 0);
+        }
+
+        private Snapshot(byte[] bytes, int length, int count, int last, int[] skips, int blockCount) {
+            this.bytes = bytes;
+            this.length = length;
+            this.count = count;
+            this.last = last;
+            this.skips = skips;
+            this.blockCount = blockCount;
+        }
+
+        // the first blocks of this snapshot, in arrays of its own so that appending to it leaves this one alone
+        private Snapshot prefix(int blocks) {
+            if (blocks == 0) {
+                return new Snapshot();
+            }
+            return new Snapshot(bytes.clone(), skips[3 * blocks], blocks * BLOCK, skips[3 * blocks + 1],
+                    skips.clone(), blocks);
+        }
+
+        // this snapshot with id inserted (below the last) or removed; the blocks before the one holding it are
+        // copied as they are, and only the rest is decoded and encoded again
+        Snapshot edit(int id, boolean insert) {
+            int from = Math.max(blockOf(id), 0);
+            Snapshot edited = prefix(from);
+            for (int block = from; block < blockCount; block++) {
+                for (int existing : block(block)) {
+                    if (insert && id < existing) {
+                        edited = edited.append(id);
+                        insert = false;
+                    }
+                    if (existing != id) {
+                        edited = edited.append(existing);
+                    }
+                }
+            }
+            return edited;
+        }
+
+        boolean contains(int id) {
+            int block = blockOf(id);
+            return block >= 0 && Arrays.binarySearch(block(block), id) >= 0;
+        }
+
+        // this snapshot plus an id larger than any in it
+        Snapshot append(int id) {
+            int[] skips = this.skips;
+            int blockCount = this.blockCount;
+            if (count % BLOCK == 0) {
+                if (3 * blockCount == skips.length) {
+                    skips = Arrays.copyOf(skips, 2 * skips.length);
+                }
+                skips[3 * blockCount] = length;
+                skips[3 * blockCount + 1] = last;
+                skips[3 * blockCount + 2] = id;
+                blockCount++;
+            }
+            byte[] bytes = this.bytes;
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + 5));
+            }
+            int position = length;
+            int gap = id - last;
+            while ((gap & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[position++] = (byte) gap;
+            return new Snapshot(bytes, position, count + 1, id, skips, blockCount);
+        }
+
+        // the ids in one block, ascending
+        int[] block(int block) {
+            int[] ids = new int[Math.min(BLOCK, count - block * BLOCK)];
+            int position = skips[3 * block];
+            int id = skips[3 * block + 1];
+            for (int i = 0; i < ids.length; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        // the block that would hold id, or -1 if id is below the first
+        int blockOf(int id) {
+            int low = 0;
+            int high = blockCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (skips[3 * middle + 2] <= id) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+
+    // membership tests against one snapshot, for ids asked in descending order; keeps the last block it decoded
+    private static final class Lookup {
+        private final Snapshot postings;
+        private int block = -1;
+        private int[] ids;
+
+        Lookup(Snapshot postings) {
+            this.postings = postings;
+        }
+
+        boolean contains(int id) {
+            int at = postings.blockOf(id);
+            if (at < 0) {
+                return false;
+            }
+            if (at != block) {
+                ids = postings.block(at);
+                block = at;
+            }
+            return Arrays.binarySearch(ids, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Stateless session tokens. /login hands one out and the message endpoints accept it as a Bearer token, so a client
+ * proves who it is without sending its password again. A token is
+ *
+ *     base64url(account_id, expires_at, token_id) "." base64url(HMAC-SHA256 of those 20 bytes)
+ *
+ * and checking one is an HMAC and a couple of map lookups, with no database access. The signing key comes from
+ * socialmedia.sessions.secret (base64) so tokens survive a restart and work across instances; without it a random
+ * key is made at startup.
+ *
+ * Logging out puts the token's id on a deny-list until the token would have expired anyway, at which point the
+ * entry is dropped, so the list only ever holds revoked tokens that are still within their lifetime.
+ */
+public class SessionService {
+
+    // how long a token is good for
+    public static final long TTL_SECONDS = Long.getLong("socialmedia.sessions.ttlSeconds", 3600L);
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int PAYLOAD_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES;
+    // deny-list size at which expired entries are swept out
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final ThreadLocal<Mac> macs;
+    // token_id -> expires_at, for revoked tokens that have not expired yet
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicLong nextPurgeSize = new AtomicLong(PURGE_THRESHOLD);
+
+    public SessionService() {
+        this(configuredKey(), TTL_SECONDS);
+    }
+
+    public SessionService(byte[] key, long ttlSeconds) {
+        this.key = new SecretKeySpec(key, MAC_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    // issue a token for an account that has just logged in
+    public String issue(int accountId) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_BYTES);
+        payload.putInt(accountId);
+        payload.putLong(nowSeconds() + ttlSeconds);
+        payload.putLong(random.nextLong());
+        byte[] bytes = payload.array();
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        return base64.encodeToString(bytes) + "." + base64.encodeToString(sign(bytes));
+    }
+
+    // the account a token was issued to, or null if it is malformed, forged, expired or revoked
+    public Integer verify(String token) {
+        ByteBuffer payload = decode(token);
+        if (payload == null) {
+            return null;
+        }
+        int accountId = payload.getInt();
+        long expiresAt = payload.getLong();
+        long tokenId = payload.getLong();
+        if (expiresAt <= nowSeconds() || revoked.containsKey(tokenId)) {
+            return null;
+        }
+        return accountId;
+    }
+
+    // revoke a token until it expires; false if it was not a valid token to begin with
+    public boolean revoke(String token) {
+        ByteBuffer payload = decode(token);
+        if (payload == null) {
+            return false;
+        }
+        payload.getInt();
+        long expiresAt = payload.getLong();
+        long tokenId = payload.getLong();
+        if (expiresAt <= nowSeconds()) {
+            return false;
+        }
+        boolean added = revoked.putIfAbsent(tokenId, expiresAt) == null;
+        long threshold = nextPurgeSize.get();
+        if (revoked.size() >= threshold && nextPurgeSize.compareAndSet(threshold, Long.MAX_VALUE)) {
+            purgeExpired();
+        }
+        return added;
+    }
+
+    /**
+     * @return number of revoked tokens still on the deny-list
+     */
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    // drop deny-list entries for tokens that have expired on their own, then sweep again once the list has doubled
+    private void purgeExpired() {
+        long now = nowSeconds();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        nextPurgeSize.set(Math.max(PURGE_THRESHOLD, 2L * revoked.size()));
+    }
+
+    // the signed payload of a well-formed token with a valid signature, positioned at its start; null otherwise
+    private ByteBuffer decode(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder base64 = Base64.getUrlDecoder();
+            byte[] payload = base64.decode(token.substring(0, dot).getBytes(StandardCharsets.US_ASCII));
+            byte[] signature = base64.decode(token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII));
+            if (payload.length != PAYLOAD_BYTES || !MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            return ByteBuffer.wrap(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 is a required algorithm on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static byte[] configuredKey() {
+        String secret = System.getProperty("socialmedia.sessions.secret");
+        if (secret != null) {
+            return Base64.getDecoder().decode(secret);
+        }
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        return key;
+    }
+}
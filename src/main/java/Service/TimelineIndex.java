@@ -0,0 +1,248 @@
+package Service;
+
+import Model.Message;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * An in-process copy of each recently listed account's messages, so GET /accounts/{account_id}/messages can be
+ * answered without a query. An account's timeline is loaded on the first listing and kept as parallel arrays sorted
+ * by message_id (ids and timestamps as primitives), so a listing or a page is a binary search and an array copy.
+ * Memory is bounded by the total number of messages held across timelines (Caffeine evicts the least valuable
+ * account), not by the number of accounts. An account with more than maxMessages messages is remembered as too big
+ * to track, and its listings keep going to the database.
+ *
+ * No lock is held across a query. Keeping the copy in step with the database relies instead on per-account locks
+ * (striped) held only for the in-memory work, and a version per stripe that every write bumps:
+ *
+ * - a load reads the version, queries, and installs what it read only if the version has not moved since, so a
+ *   write that committed while it was reading cannot be missing from what it installs;
+ * - a single create reads the version before its insert and, once committed, appends the row only if nothing
+ *   else was written on the stripe in between; otherwise it drops the timeline, since a delete of the same row
+ *   could have reached the index first;
+ * - everything else (deletes, updates, batches, group commits) takes the lock after its statement has committed
+ *   and then removes the row or drops the whole timeline. Any load that runs later sees the committed state.
+ *
+ * Updates drop the timeline rather than patching it, since two updates to the same message could commit in one
+ * order and reach the index in the other.
+ */
+public class TimelineIndex {
+
+    // timelines are kept unless switched off
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("socialmedia.timelines.enabled", "true"));
+    // most messages held across all tracked timelines
+    public static final long MAX_TOTAL_MESSAGES = Long.getLong("socialmedia.timelines.maxTotalMessages", 1_000_000L);
+    // accounts with more messages than this are not tracked
+    public static final int MAX_MESSAGES = Integer.getInteger("socialmedia.timelines.maxMessagesPerAccount", 10_000);
+
+    private static final int STRIPES = 256;
+
+    // stands in for an account with too many messages to track
+    private static final Timeline OVERSIZED = new Timeline(0, List.of());
+
+    private final Cache<Integer, Timeline> timelines;
+    private final int maxMessages;
+    private final Object[] locks = new Object[STRIPES];
+    // bumped, under the stripe's lock, by every write to an account on the stripe
+    private final long[] versions = new long[STRIPES];
+
+    // loads up to limit of an account's messages from the database, in message_id order
+    public interface Loader {
+        List<Message> load(int limit) throws SQLException;
+    }
+
+    // inserts one message into the database
+    public interface Insert {
+        Message insert() throws SQLException;
+    }
+
+    public TimelineIndex() {
+        this(MAX_TOTAL_MESSAGES, MAX_MESSAGES);
+    }
+
+    public TimelineIndex(long maxTotalMessages, int maxMessages) {
+        this.timelines = Caffeine.newBuilder()
+                .maximumWeight(maxTotalMessages)
+                .weigher((Integer accountId, Timeline timeline) -> 1 + timeline.size)
+                .recordStats()
+                .build();
+        this.maxMessages = maxMessages;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // every message the account has posted, in message_id order, loading the timeline if it is not tracked yet;
+    // null if the account has too many messages to track, and the caller should query the database
+    public List<Message> messages(int accountId, Loader loader) throws SQLException {
+        return page(accountId, 0, Integer.MAX_VALUE, loader);
+    }
+
+    // up to limit of the account's messages with message_id above afterId, in message_id order; null as above
+    public List<Message> page(int accountId, int afterId, int limit, Loader loader) throws SQLException {
+        int stripe = stripeFor(accountId);
+        long version;
+        synchronized (locks[stripe]) {
+            Timeline timeline = timelines.getIfPresent(accountId);
+            if (timeline != null) {
+                return timeline == OVERSIZED ? null : timeline.page(afterId, limit);
+            }
+            version = versions[stripe];
+        }
+
+        // one row past the cap is enough to tell the account is too big, without reading all of it
+        List<Message> loaded = loader.load(maxMessages + 1);
+        Timeline timeline = loaded.size() > maxMessages ? OVERSIZED : new Timeline(accountId, loaded);
+        synchronized (locks[stripe]) {
+            if (versions[stripe] == version && !timelines.asMap().containsKey(accountId)) {
+                timelines.put(accountId, timeline);
+            }
+            // what was read is answered either way; it was the committed state when the query ran
+            return timeline == OVERSIZED ? null : timeline.page(afterId, limit);
+        }
+    }
+
+    // insert a message and, if its author's timeline is tracked, append it once the insert has committed
+    public Message create(int accountId, Insert insert) throws SQLException {
+        int stripe = stripeFor(accountId);
+        long version;
+        synchronized (locks[stripe]) {
+            version = versions[stripe];
+        }
+
+        Message created = insert.insert();
+        synchronized (locks[stripe]) {
+            Timeline timeline = timelines.getIfPresent(accountId);
+            if (timeline != null && timeline != OVERSIZED) {
+                if (versions[stripe] == version && timeline.size < maxMessages) {
+                    timeline.add(created);
+                    // put again so the cache weighs the longer timeline
+                    timelines.put(accountId, timeline);
+                } else {
+                    timelines.invalidate(accountId);
+                }
+            }
+            versions[stripe]++;
+            return created;
+        }
+    }
+
+    // a committed delete; drops the message from its author's timeline
+    public void deleted(Message message) {
+        int stripe = stripeFor(message.getPosted_by());
+        synchronized (locks[stripe]) {
+            Timeline timeline = timelines.getIfPresent(message.getPosted_by());
+            if (timeline != null && timeline != OVERSIZED) {
+                timeline.remove(message.getMessage_id());
+            }
+            versions[stripe]++;
+        }
+    }
+
+    // a committed write that is not applied in place; the account's timeline is reloaded on its next listing
+    public void invalidate(int accountId) {
+        int stripe = stripeFor(accountId);
+        synchronized (locks[stripe]) {
+            timelines.invalidate(accountId);
+            versions[stripe]++;
+        }
+    }
+
+    /**
+     * @return hit and miss counts for listings served from memory
+     */
+    public CacheStats getStats() {
+        return timelines.stats();
+    }
+
+    /**
+     * @return number of accounts currently tracked
+     */
+    public long getTrackedAccounts() {
+        return timelines.estimatedSize();
+    }
+
+    private static int stripeFor(int accountId) {
+        return Math.floorMod(accountId, STRIPES);
+    }
+
+    // one account's messages as parallel arrays sorted by message_id; guarded by the account's lock
+    private static class Timeline {
+        private final int postedBy;
+        private int[] ids;
+        private long[] times;
+        private String[] texts;
+        private int size;
+
+        Timeline(int postedBy, List<Message> sorted) {
+            this.postedBy = postedBy;
+            int capacity = Math.max(8, sorted.size());
+            this.ids = new int[capacity];
+            this.times = new long[capacity];
+            this.texts = new String[capacity];
+            for (Message message : sorted) {
+                ids[size] = message.getMessage_id();
+                times[size] = message.getTime_posted_epoch();
+                texts[size] = message.getMessage_text();
+                size++;
+            }
+        }
+
+        List<Message> page(int afterId, int limit) {
+            int from = indexAfter(afterId);
+            int to = (int) Math.min(size, (long) from + limit);
+            List<Message> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                page.add(new Message(ids[i], postedBy, texts[i], times[i]));
+            }
+            return page;
+        }
+
+        // new ids are the largest so far, so this is nearly always an append; adding an id already present does nothing
+        void add(Message message) {
+            int id = message.getMessage_id();
+            int index = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int at = index >= 0 ? index : -index - 1;
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                times = Arrays.copyOf(times, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(times, at, times, at + 1, size - at);
+            System.arraycopy(texts, at, texts, at + 1, size - at);
+            ids[at] = id;
+            times[at] = message.getTime_posted_epoch();
+            texts[at] = message.getMessage_text();
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            System.arraycopy(times, at + 1, times, at, size - at - 1);
+            System.arraycopy(texts, at + 1, texts, at, size - at - 1);
+            size--;
+            texts[size] = null;
+        }
+
+        // position of the first id above afterId
+        private int indexAfter(int afterId) {
+            int index = Arrays.binarySearch(ids, 0, size, afterId);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+}
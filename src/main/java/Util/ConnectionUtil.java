@@ -1,19 +1,32 @@
 package Util;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
 
-import org.h2.jdbcx.JdbcDataSource;
 import org.h2.tools.RunScript;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 /**
  * The ConnectionUtil class will be utilized to create an active connection to
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections come from a bounded HikariCP pool, and the schema migrations are applied from here too. The tests
+ * depend on getConnection() and resetTestDatabase(), so keep their signatures stable when changing this class.
  */
 public class ConnectionUtil {
 
@@ -21,7 +34,7 @@ public class ConnectionUtil {
 	 * url will represent our connection string. Since this is an in-memory db, we
 	 * will represent a file location to store the data
 	 */
-	private static String url = "jdbc:h2:./h2/db;";
+	private static String url = System.getProperty("socialmedia.db.url", "jdbc:h2:./h2/db;");
 	/**
 	 * Default username for connecting to h2
 	 */
@@ -32,43 +45,133 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * Schema migrations applied on top of SocialMedia.sql, in order. Each runs once per database; the scripts that
+	 * have run are listed in the schema_version table, so a new migration is added to the end, never edited in.
+	 */
+	private static final String[] MIGRATIONS = {
+			"migrations/001_message_indexes.sql",
+			"migrations/002_message_time_indexes.sql"
+	};
+
+	/**
+	 * Statistics for the pool: active/idle connections, waiting threads and borrow latency.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static PoolMetrics poolMetrics = new PoolMetrics();
 
 	/**
-	 * static initialization block to establish credentials for DataSoure Pool
+	 * DataSource for pooling. Closing a connection hands it back to the pool instead of closing the physical
+	 * connection. The pool is bounded, evicts connections that sit idle past the idle timeout, validates a
+	 * connection on borrow if it has been idle, and makes callers wait at most the borrow timeout for one.
+	 * Every setting can be overridden with a system property.
+	 */
+	private static HikariDataSource pool;
+
+	/**
+	 * static initialization block to establish credentials and limits for the DataSource Pool
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("SocialMediaPool");
+		config.setJdbcUrl(url);
+		config.setUsername(username);
+		config.setPassword(password);
+		config.setMaximumPoolSize(Integer.getInteger("socialmedia.db.pool.maxSize", 10));
+		config.setMinimumIdle(Integer.getInteger("socialmedia.db.pool.minIdle", 2));
+		config.setIdleTimeout(Long.getLong("socialmedia.db.pool.idleTimeoutMs", 60_000L));
+		config.setConnectionTimeout(Long.getLong("socialmedia.db.pool.borrowTimeoutMs", 5_000L));
+		config.setValidationTimeout(Long.getLong("socialmedia.db.pool.validationTimeoutMs", 1_000L));
+		config.setMetricsTrackerFactory(poolMetrics);
+		config.setRegisterMbeans(true);
+		pool = new HikariDataSource(config);
 	}
 
 	/**
 	 * @return an active connection to the database
+	 * @throws SQLTransientConnectionException if no connection was free within the borrow timeout
+	 * @throws SQLException if a new connection could not be opened
 	 */
-	public static Connection getConnection() {
-		try {
-			return pool.getConnection();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
+	public static Connection getConnection() throws SQLException {
+		return pool.getConnection();
+	}
+
+	/**
+	 * @return the most connections the pool will open
+	 */
+	public static int getMaximumPoolSize() {
+		return pool.getMaximumPoolSize();
+	}
 
-		return null;
+	/**
+	 * @return live statistics for the connection pool
+	 */
+	public static PoolMetrics getPoolMetrics() {
+		return poolMetrics;
 	}
 
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
 	 * tables to keep it consistent across all tests. The method will read the sql
-	 * file in resources. This will be performed before every test.
+	 * file in resources. This will be performed before every test. Recreating the
+	 * tables drops their indexes, so the migration ledger is dropped with them and
+	 * every migration is applied again.
 	 */
 	public static void resetTestDatabase() {
-		try {
-			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
-		} catch (SQLException | FileNotFoundException e) {
+		try (Connection connection = getConnection();
+			 FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql")) {
+			RunScript.execute(connection, sqlReader);
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("DROP TABLE IF EXISTS schema_version");
+			}
+		} catch (SQLException | IOException e) {
 			e.printStackTrace();
 		}
+		migrate();
+	}
+
+	/**
+	 * Applies the schema migrations found in resources/migrations that the schema_version ledger does not list yet,
+	 * in order, recording each one once it has run. A migration that fails stops startup with an
+	 * IllegalStateException rather than leaving the application running on a half-migrated schema.
+	 */
+	public static void migrate() {
+		try (Connection connection = getConnection()) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+						+ "script VARCHAR(255) PRIMARY KEY, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+			}
+			Set<String> applied = new HashSet<>();
+			try (Statement statement = connection.createStatement();
+				 ResultSet rs = statement.executeQuery("SELECT script FROM schema_version")) {
+				while (rs.next()) {
+					applied.add(rs.getString(1));
+				}
+			}
+			for (String migration : MIGRATIONS) {
+				if (!applied.contains(migration)) {
+					apply(connection, migration);
+				}
+			}
+		} catch (SQLException | IOException e) {
+			throw new IllegalStateException("Schema migration failed.", e);
+		}
+	}
+
+	/**
+	 * Runs one migration script and adds it to the ledger.
+	 */
+	private static void apply(Connection connection, String migration) throws SQLException, IOException {
+		InputStream script = ConnectionUtil.class.getClassLoader().getResourceAsStream(migration);
+		if (script == null) {
+			throw new IllegalStateException("Missing migration script " + migration);
+		}
+		try (Reader sqlReader = new InputStreamReader(script, StandardCharsets.UTF_8)) {
+			RunScript.execute(connection, sqlReader);
+		} catch (SQLException e) {
+			throw new SQLException("Migration " + migration + " failed.", e.getSQLState(), e);
+		}
+		try (PreparedStatement ps = connection.prepareStatement("INSERT INTO schema_version (script) VALUES (?)")) {
+			ps.setString(1, migration);
+			ps.executeUpdate();
+		}
 	}
 }
@@ -0,0 +1,106 @@
+package Util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor for blocking JDBC work that runs each task on its own virtual thread and bounds admission instead of
+ * threads: at most concurrency tasks run at once, at most queueCapacity more wait for a slot, and past that
+ * execute() throws RejectedExecutionException straight away so the caller can shed load (the controller answers
+ * 503 with Retry-After).
+ *
+ * A waiting or running task is a parked virtual thread, not a platform thread, so it costs no more than the
+ * request it belongs to. The connection pool, whose borrow timeout is bounded, stays the limit on actual database
+ * work; the concurrency here only decides how much of the pool one kind of request may ask for. That lets
+ * group-committed creates pile up behind one flush rather than behind a handful of executor threads.
+ */
+public class JdbcExecutor implements Executor {
+
+	private final String name;
+	private final Semaphore admitted;
+	private final Semaphore running;
+	private final ThreadFactory threadFactory;
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+	private volatile boolean shutdown;
+
+	public JdbcExecutor(String name, int concurrency, int queueCapacity) {
+		this.name = name;
+		this.admitted = new Semaphore(concurrency + queueCapacity);
+		// fair, so admitted tasks start in the order they arrived
+		this.running = new Semaphore(concurrency, true);
+		this.threadFactory = Thread.ofVirtual().name(name + "-", 1).factory();
+	}
+
+	/**
+	 * Runs the task on a new virtual thread once one of this executor's slots is free.
+	 *
+	 * @throws RejectedExecutionException if every slot is taken and queueCapacity tasks already wait for one, or
+	 *                                    the executor has been shut down
+	 */
+	@Override
+	public void execute(Runnable task) {
+		if (shutdown) {
+			throw new RejectedExecutionException(name + " is shut down");
+		}
+		if (!admitted.tryAcquire()) {
+			rejected.increment();
+			throw new RejectedExecutionException(name + " is saturated");
+		}
+		try {
+			threadFactory.newThread(() -> run(task)).start();
+		} catch (RuntimeException | Error e) {
+			admitted.release();
+			throw e;
+		}
+	}
+
+	private void run(Runnable task) {
+		try {
+			running.acquireUninterruptibly();
+			active.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				active.decrementAndGet();
+				running.release();
+			}
+		} finally {
+			admitted.release();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of tasks currently running
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	/**
+	 * @return number of admitted tasks waiting for a slot
+	 */
+	public int getQueueDepth() {
+		return running.getQueueLength();
+	}
+
+	/**
+	 * @return number of tasks turned away since startup
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	// let admitted tasks finish, accept no new ones
+	public void shutdown() {
+		shutdown = true;
+	}
+}
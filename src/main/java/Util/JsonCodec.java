@@ -0,0 +1,56 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * The JsonCodec class holds the one ObjectMapper the application uses. An ObjectMapper is thread-safe once
+ * configured and caches the serializers it builds, so sharing it avoids rebuilding them on every request.
+ * The Blackbird module swaps Jackson's reflective getter/setter calls on Model.Message and Model.Account for
+ * generated lambdas.
+ */
+public class JsonCodec {
+
+	/**
+	 * The shared mapper. Do not reconfigure it after startup.
+	 */
+	public static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new BlackbirdModule());
+
+	private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+	/**
+	 * Reads a single top-level field from a JSON object with the streaming parser, without building a tree or
+	 * binding the rest of the body. Other fields, nested or not, are skipped over.
+	 *
+	 * @return the field's value as text, or null if the value is JSON null
+	 * @throws IllegalArgumentException if the body is not an object or the field is missing
+	 */
+	public static String readTextField(InputStream body, String fieldName) throws IOException {
+		try (JsonParser parser = FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IllegalArgumentException("Expected a JSON object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (fieldName.equals(name)) {
+					if (value == JsonToken.VALUE_NULL) {
+						return null;
+					}
+					if (value.isScalarValue()) {
+						return parser.getValueAsString();
+					}
+					throw new IllegalArgumentException("Expected " + fieldName + " to be a scalar.");
+				}
+				parser.skipChildren();
+			}
+		}
+		throw new IllegalArgumentException("Missing " + fieldName + ".");
+	}
+}
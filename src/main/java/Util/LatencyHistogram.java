@@ -0,0 +1,113 @@
+package Util;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket latency histogram. Bucket bounds are set once at construction and every bucket is a LongAdder,
+ * so recording is a short scan over a long[] plus one striped add, with no locks and nothing allocated once the
+ * adders have grown their cells.
+ *
+ * Counts are cumulative since startup, which is what a Prometheus scraper expects; rates and quantiles over an
+ * interval are computed on the server side from successive scrapes.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Upper bucket bounds in seconds, from 50 microseconds to 10 seconds; anything slower falls in +Inf.
+	 */
+	public static final double[] DEFAULT_BOUNDS_SECONDS = {
+			0.00005, 0.0001, 0.00025, 0.0005,
+			0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+			0.1, 0.25, 0.5, 1, 2.5, 5, 10
+	};
+
+	private final double[] boundsSeconds;
+	private final long[] boundsNanos;
+	// one more bucket than bounds, for +Inf
+	private final LongAdder[] buckets;
+	private final LongAdder sumNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		this(DEFAULT_BOUNDS_SECONDS);
+	}
+
+	public LatencyHistogram(double[] boundsSeconds) {
+		this.boundsSeconds = boundsSeconds.clone();
+		this.boundsNanos = new long[boundsSeconds.length];
+		for (int i = 0; i < boundsSeconds.length; i++) {
+			boundsNanos[i] = (long) (boundsSeconds[i] * 1_000_000_000L);
+		}
+		this.buckets = new LongAdder[boundsSeconds.length + 1];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records one observation.
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while (bucket < boundsNanos.length && nanos > boundsNanos[bucket]) {
+			bucket++;
+		}
+		buckets[bucket].increment();
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * Records the time elapsed since startNanos, a value taken from System.nanoTime().
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Runs a JDBC call and records how long it took, whether it returned or threw.
+	 */
+	public <T> T time(SqlCall<T> call) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return call.call();
+		} finally {
+			recordSince(start);
+		}
+	}
+
+	/**
+	 * @return number of bounded buckets, not counting +Inf
+	 */
+	public int getBucketCount() {
+		return boundsSeconds.length;
+	}
+
+	/**
+	 * @return upper bound of the given bucket, in seconds
+	 */
+	public double getBound(int bucket) {
+		return boundsSeconds[bucket];
+	}
+
+	/**
+	 * @return observations in the given bucket alone; bucket getBucketCount() is +Inf
+	 */
+	public long getBucket(int bucket) {
+		return buckets[bucket].sum();
+	}
+
+	/**
+	 * @return total of all observations, in nanoseconds
+	 */
+	public long getSumNanos() {
+		return sumNanos.sum();
+	}
+
+	/**
+	 * A unit of JDBC work, such as a call to a DAO method.
+	 */
+	@FunctionalInterface
+	public interface SqlCall<T> {
+		T call() throws SQLException;
+	}
+}
@@ -0,0 +1,173 @@
+package Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The Metrics class is the process-wide registry behind GET /metrics. It holds three kinds of metric:
+ *
+ * routes  - one RouteMetrics per HTTP route, registered by the controller.
+ * queries - one LatencyHistogram per DAO method, held in a static field by the DAO.
+ * gauges  - values read on demand at scrape time (pool, caches, executors), registered by whoever owns them and
+ *           removed again when the owner stops.
+ *
+ * Recording only touches the objects handed out at registration, never this registry. scrape() renders
+ * everything in the Prometheus text exposition format.
+ */
+public class Metrics {
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final Map<String, RouteMetrics> routes = new ConcurrentSkipListMap<>();
+	private static final Map<String, LatencyHistogram> queries = new ConcurrentSkipListMap<>();
+	private static final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @return the metrics for a route, created on first use; registering the same route again returns the same
+	 *         instance, so restarting the API keeps counting where it left off
+	 */
+	public static RouteMetrics route(String method, String path) {
+		return routes.computeIfAbsent(method + " " + path, key -> new RouteMetrics(method, path));
+	}
+
+	/**
+	 * @return the timer for one DAO method, created on first use
+	 */
+	public static LatencyHistogram query(String dao, String method) {
+		return queries.computeIfAbsent(labels("dao", dao, "method", method), key -> new LatencyHistogram());
+	}
+
+	/**
+	 * Registers a value to be read at scrape time, replacing any earlier one with the same name and labels.
+	 *
+	 * @param type   the Prometheus type, "gauge" or "counter"
+	 * @param labels pre-rendered labels such as name="jdbc-query", or an empty string
+	 * @return removes this value again, unless it has since been replaced; the owner calls it when it shuts down so
+	 *         the registry does not keep it, and whatever it reads, reachable
+	 */
+	public static Runnable gauge(String name, String type, String help, String labels, DoubleSupplier value) {
+		gauges.compute(name, (key, gauge) -> {
+			Gauge registered = gauge != null ? gauge : new Gauge(type, help);
+			registered.values.put(labels, value);
+			return registered;
+		});
+		return () -> gauges.computeIfPresent(name, (key, gauge) -> {
+			gauge.values.remove(labels, value);
+			return gauge.values.isEmpty() ? null : gauge;
+		});
+	}
+
+	/**
+	 * @return every registered metric in the Prometheus text format
+	 */
+	public static String scrape() {
+		StringBuilder out = new StringBuilder(8192);
+
+		header(out, "socialmedia_http_request_duration_seconds", "histogram", "HTTP request latency by route.");
+		for (RouteMetrics route : routes.values()) {
+			histogram(out, "socialmedia_http_request_duration_seconds", routeLabels(route), route.getLatency());
+		}
+		header(out, "socialmedia_http_requests_total", "counter", "HTTP responses by route and status code.");
+		for (RouteMetrics route : routes.values()) {
+			for (int status = 0; status < route.getStatusSlots(); status++) {
+				long count = route.getStatusCount(status);
+				if (count > 0) {
+					sample(out, "socialmedia_http_requests_total",
+							routeLabels(route) + ",status=\"" + status + "\"", count);
+				}
+			}
+		}
+		header(out, "socialmedia_http_requests_in_flight", "gauge", "HTTP requests currently being handled.");
+		for (RouteMetrics route : routes.values()) {
+			sample(out, "socialmedia_http_requests_in_flight", routeLabels(route), route.getInFlight());
+		}
+
+		header(out, "socialmedia_db_query_duration_seconds", "histogram", "DAO method latency.");
+		for (Map.Entry<String, LatencyHistogram> query : queries.entrySet()) {
+			histogram(out, "socialmedia_db_query_duration_seconds", query.getKey(), query.getValue());
+		}
+
+		for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+			Gauge gauge = entry.getValue();
+			header(out, entry.getKey(), gauge.type, gauge.help);
+			for (Map.Entry<String, DoubleSupplier> value : gauge.values.entrySet()) {
+				sample(out, entry.getKey(), value.getKey(), value.getValue().getAsDouble());
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * @return labels rendered as a="x",b="y"
+	 */
+	public static String labels(String... namesAndValues) {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+		}
+		return out.toString();
+	}
+
+	private static String routeLabels(RouteMetrics route) {
+		return labels("method", route.getMethod(), "route", route.getPath());
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		long cumulative = 0;
+		for (int bucket = 0; bucket < histogram.getBucketCount(); bucket++) {
+			cumulative += histogram.getBucket(bucket);
+			sample(out, name + "_bucket", prefix + "le=\"" + histogram.getBound(bucket) + "\"", cumulative);
+		}
+		cumulative += histogram.getBucket(histogram.getBucketCount());
+		sample(out, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+		sample(out, name + "_sum", labels, histogram.getSumNanos() / 1e9);
+		sample(out, name + "_count", labels, cumulative);
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, long value) {
+		sampleName(out, name, labels).append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, double value) {
+		sampleName(out, name, labels);
+		if (value == Math.rint(value) && !Double.isInfinite(value)) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+		out.append('\n');
+	}
+
+	private static StringBuilder sampleName(StringBuilder out, String name, String labels) {
+		out.append(name);
+		if (!labels.isEmpty()) {
+			out.append('{').append(labels).append('}');
+		}
+		return out.append(' ');
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static class Gauge {
+		final String type;
+		final String help;
+		final Map<String, DoubleSupplier> values = new ConcurrentSkipListMap<>();
+
+		Gauge(String type, String help) {
+			this.type = type;
+			this.help = help;
+		}
+	}
+}
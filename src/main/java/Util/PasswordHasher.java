@@ -0,0 +1,110 @@
+package Util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * The PasswordHasher class turns passwords into salted PBKDF2-HMAC-SHA256 hashes and checks passwords against them.
+ * A stored hash carries its own cost and salt:
+ *
+ *     pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>
+ *
+ * so the cost can be raised (socialmedia.passwords.iterations) without invalidating existing accounts; needsRehash()
+ * tells the caller when a stored hash was made at a different cost. Anything without the prefix is a password
+ * stored in plaintext before hashing was introduced, and is compared in constant time.
+ *
+ * Hashing is deliberately slow and CPU-bound; see Service.PasswordVerifier for where it runs.
+ */
+public class PasswordHasher {
+
+	/**
+	 * PBKDF2 iterations for new hashes; OWASP's current recommendation for HMAC-SHA256
+	 */
+	public static final int DEFAULT_ITERATIONS = Integer.getInteger("socialmedia.passwords.iterations", 600_000);
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+	private static final String PREFIX = "pbkdf2-sha256$";
+	private static final int SALT_BYTES = 16;
+	private static final int HASH_BITS = 256;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private final int iterations;
+
+	public PasswordHasher() {
+		this(DEFAULT_ITERATIONS);
+	}
+
+	public PasswordHasher(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Iterations must be positive.");
+		}
+		this.iterations = iterations;
+	}
+
+	/**
+	 * @return a new salted hash of the password at this hasher's cost
+	 */
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		byte[] hash = pbkdf2(password, salt, iterations);
+		Base64.Encoder base64 = Base64.getEncoder();
+		return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+	}
+
+	/**
+	 * @return true if the password matches the stored hash, or the stored plaintext for a legacy account
+	 */
+	public boolean verify(String password, String stored) {
+		if (password == null || stored == null) {
+			return false;
+		}
+		if (!stored.startsWith(PREFIX)) {
+			return MessageDigest.isEqual(
+					password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+		}
+		String[] parts = stored.substring(PREFIX.length()).split("\\$");
+		if (parts.length != 3) {
+			return false;
+		}
+		try {
+			Base64.Decoder base64 = Base64.getDecoder();
+			byte[] expected = base64.decode(parts[2]);
+			byte[] actual = pbkdf2(password, base64.decode(parts[1]), Integer.parseInt(parts[0]));
+			return MessageDigest.isEqual(expected, actual);
+		} catch (IllegalArgumentException e) {
+			// a mangled hash matches nothing
+			return false;
+		}
+	}
+
+	/**
+	 * @return true if the stored value is plaintext or was hashed at a different cost than this hasher's
+	 */
+	public boolean needsRehash(String stored) {
+		return stored == null || !stored.startsWith(PREFIX + iterations + "$");
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			// PBKDF2WithHmacSHA256 is a required algorithm on every Java platform
+			throw new IllegalStateException(e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * The PoolMetrics class collects statistics for the connection pool behind ConnectionUtil. Hikari calls back into
+ * the tracker on every borrow, so the counters are LongAdders to keep the borrow path cheap under contention.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+	private volatile PoolStats poolStats;
+
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder borrowNanosTotal = new LongAdder();
+	private final AtomicLong borrowNanosMax = new AtomicLong();
+	private final LongAdder borrowTimeouts = new LongAdder();
+
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		this.poolStats = poolStats;
+		return new IMetricsTracker() {
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				borrowCount.increment();
+				borrowNanosTotal.add(elapsedAcquiredNanos);
+				borrowNanosMax.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				borrowTimeouts.increment();
+			}
+		};
+	}
+
+	/**
+	 * @return number of connections currently handed out to callers
+	 */
+	public int getActiveConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getActiveConnections();
+	}
+
+	/**
+	 * @return number of open connections sitting idle in the pool
+	 */
+	public int getIdleConnections() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getIdleConnections();
+	}
+
+	/**
+	 * @return number of threads blocked waiting for a connection
+	 */
+	public int getWaiters() {
+		PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getPendingThreads();
+	}
+
+	/**
+	 * @return number of successful borrows since startup
+	 */
+	public long getBorrowCount() {
+		return borrowCount.sum();
+	}
+
+	/**
+	 * @return total time spent waiting on successful borrows, in nanoseconds
+	 */
+	public long getBorrowNanosTotal() {
+		return borrowNanosTotal.sum();
+	}
+
+	/**
+	 * @return the slowest successful borrow since startup, in nanoseconds
+	 */
+	public long getBorrowNanosMax() {
+		return borrowNanosMax.get();
+	}
+
+	/**
+	 * @return number of borrows that gave up after the borrow timeout
+	 */
+	public long getBorrowTimeouts() {
+		return borrowTimeouts.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "PoolMetrics{" +
+				"active=" + getActiveConnections() +
+				", idle=" + getIdleConnections() +
+				", waiters=" + getWaiters() +
+				", borrows=" + getBorrowCount() +
+				", borrowNanosTotal=" + getBorrowNanosTotal() +
+				", borrowNanosMax=" + getBorrowNanosMax() +
+				", borrowTimeouts=" + getBorrowTimeouts() +
+				'}';
+	}
+}
@@ -0,0 +1,382 @@
+package Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * The ResponseCompression class compresses the message listings, which are long runs of near-identical JSON. It is
+ * configured with system properties:
+ *
+ * socialmedia.compression          - encodings offered, in order of preference: gzip, deflate, or none
+ * socialmedia.compression.level    - zlib level, 1 (fastest) to 9 (smallest)
+ * socialmedia.compression.minSize  - bodies smaller than this many bytes are sent as they are
+ * socialmedia.compression.cacheBytes - memory kept for compressed listings, 0 for none
+ *
+ * A listing is still streamed as it is read: the first minSize bytes are held back to decide whether compressing
+ * is worth it, and after that everything goes through the compressor straight to the client. While it streams, the
+ * compressed bytes are also copied aside (up to maxCachedBytes), and once the listing is complete - the writer
+ * says so with Body.commit() - they are kept under the request's path, encoding and ETag. A listing cut short by
+ * an error is never kept. The next request for an unchanged listing gets those bytes back
+ * without a query, serialization or compression.
+ *
+ * Brotli is not offered, since there is no pure-Java encoder for it.
+ */
+public class ResponseCompression {
+
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+
+	private final List<String> encodings;
+	private final int level;
+	private final int minSize;
+	private final int maxCachedBytes;
+	private final Cache<String, Compressed> cache;
+
+	/**
+	 * @return the compression configured through the socialmedia.compression properties
+	 */
+	public static ResponseCompression fromProperties() {
+		List<String> encodings = new ArrayList<>();
+		for (String encoding : System.getProperty("socialmedia.compression", GZIP + "," + DEFLATE).split(",")) {
+			String name = encoding.trim().toLowerCase(Locale.ROOT);
+			if (name.equals(GZIP) || name.equals(DEFLATE)) {
+				encodings.add(name);
+			} else if (!name.equals("none") && !name.isEmpty()) {
+				throw new IllegalArgumentException("Unknown compression " + name);
+			}
+		}
+		return new ResponseCompression(encodings,
+				Integer.getInteger("socialmedia.compression.level", 6),
+				Integer.getInteger("socialmedia.compression.minSize", 1024),
+				Long.getLong("socialmedia.compression.cacheBytes", 16L * 1024 * 1024),
+				Integer.getInteger("socialmedia.compression.maxCachedBytes", 1024 * 1024));
+	}
+
+	public ResponseCompression(List<String> encodings, int level, int minSize, long cacheBytes, int maxCachedBytes) {
+		this.encodings = List.copyOf(encodings);
+		this.level = level;
+		this.minSize = minSize;
+		this.maxCachedBytes = maxCachedBytes;
+		this.cache = cacheBytes > 0
+				? Caffeine.newBuilder()
+						.maximumWeight(cacheBytes)
+						.<String, Compressed>weigher((key, value) -> key.length() + value.bytes.length)
+						.recordStats()
+						.build()
+				: null;
+	}
+
+	/**
+	 * @return true if the given encoding is one this server offers
+	 */
+	public boolean offers(String encoding) {
+		return encodings.contains(encoding);
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * @return the first offered encoding the client accepts, or null to send the body as it is
+	 */
+	public String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		for (String offered : encodings) {
+			if (accepts(acceptEncoding, offered)) {
+				return offered;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the compressed body stored for this key, if it was stored under the same ETag; null otherwise
+	 */
+	public byte[] cached(String key, String etag) {
+		if (cache == null) {
+			return null;
+		}
+		Compressed compressed = cache.getIfPresent(key);
+		return compressed != null && compressed.etag.equals(etag) ? compressed.bytes : null;
+	}
+
+	/**
+	 * Opens a stream for a response body. Bodies under minSize go out unencoded; larger ones are compressed with
+	 * the given encoding, with the Content-Encoding header set before the first byte is sent. When key is not null
+	 * and the compressed body fits in maxCachedBytes, it is kept under key and etag once the stream is closed, but
+	 * only if the writer called commit() first.
+	 *
+	 * @param encoding the negotiated encoding, or null for none
+	 */
+	public Body open(HttpServletResponse response, String encoding, String key, String etag) throws IOException {
+		if (encoding == null) {
+			return new PlainStream(response.getOutputStream());
+		}
+		return new ThresholdStream(response, encoding, cache == null ? null : key, etag);
+	}
+
+	/**
+	 * Wraps out in a compressor for the encoding, at this instance's level. Closing the compressor always ends its
+	 * Deflater, releasing the native memory behind it, even when finishing the stream fails.
+	 */
+	public OutputStream compressor(OutputStream out, String encoding) throws IOException {
+		if (GZIP.equals(encoding)) {
+			return new GZIPOutputStream(out, 8192) {
+				{
+					def.setLevel(level);
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						def.end();
+					}
+				}
+			};
+		}
+		return new DeflaterOutputStream(out, new Deflater(level), 8192) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					// a Deflater passed in is not ended by the stream
+					def.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * A response body stream from open(). What is written is only kept for later requests once commit() has been
+	 * called, so a writer that fails halfway leaves nothing behind but the truncated response.
+	 */
+	public abstract static class Body extends OutputStream {
+		private boolean committed;
+
+		/**
+		 * Marks the body as complete; call it once the last byte has been written and before closing.
+		 */
+		public void commit() {
+			committed = true;
+		}
+
+		protected boolean isCommitted() {
+			return committed;
+		}
+	}
+
+	/**
+	 * @return hit and miss counts for compressed listings
+	 */
+	public CacheStats getCacheStats() {
+		return cache == null ? CacheStats.empty() : cache.stats();
+	}
+
+	/**
+	 * @return bytes of compressed listings currently kept
+	 */
+	public long getCachedBytes() {
+		return cache == null ? 0 : cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+	}
+
+	// true unless the client leaves the encoding out or gives it q=0
+	private static boolean accepts(String acceptEncoding, String encoding) {
+		boolean wildcard = false;
+		for (String part : acceptEncoding.split(",")) {
+			String[] fields = part.trim().split(";");
+			String name = fields[0].trim().toLowerCase(Locale.ROOT);
+			boolean refused = false;
+			for (int i = 1; i < fields.length; i++) {
+				String param = fields[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						refused = Double.parseDouble(param.substring(2)) <= 0;
+					} catch (NumberFormatException e) {
+						refused = true;
+					}
+				}
+			}
+			if (name.equals(encoding)) {
+				return !refused;
+			}
+			if (name.equals("*")) {
+				wildcard = !refused;
+			}
+		}
+		return wildcard;
+	}
+
+	private static class Compressed {
+		final String etag;
+		final byte[] bytes;
+
+		Compressed(String etag, byte[] bytes) {
+			this.etag = etag;
+			this.bytes = bytes;
+		}
+	}
+
+	// an unencoded body, straight to the response
+	private static class PlainStream extends Body {
+		private final OutputStream out;
+
+		PlainStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	// holds back the first minSize bytes, then either sends them as they are (short body) or starts compressing
+	private class ThresholdStream extends Body {
+		private final HttpServletResponse response;
+		private final String encoding;
+		private final String key;
+		private final String etag;
+		private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+		private OutputStream compressed;
+		private CapturingStream capture;
+		private boolean closed;
+
+		ThresholdStream(HttpServletResponse response, String encoding, String key, String etag) {
+			this.response = response;
+			this.encoding = encoding;
+			this.key = key;
+			this.etag = etag;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			if (compressed != null) {
+				compressed.write(bytes, offset, length);
+				return;
+			}
+			pending.write(bytes, offset, length);
+			if (pending.size() >= minSize) {
+				response.setHeader("Content-Encoding", encoding);
+				capture = new CapturingStream(response.getOutputStream(), key == null ? 0 : maxCachedBytes);
+				compressed = compressor(capture, encoding);
+				pending.writeTo(compressed);
+				pending = null;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (compressed != null) {
+				compressed.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (compressed == null) {
+				// too short to be worth compressing
+				OutputStream out = response.getOutputStream();
+				pending.writeTo(out);
+				out.close();
+				return;
+			}
+			compressed.close();
+			byte[] captured = capture.captured();
+			if (key != null && captured != null && isCommitted()) {
+				cache.put(key, new Compressed(etag, captured));
+			}
+		}
+	}
+
+	// passes everything through and keeps a copy, until the copy would grow past its limit
+	private static class CapturingStream extends OutputStream {
+		private final OutputStream out;
+		private final int limit;
+		private ByteArrayOutputStream copy;
+
+		CapturingStream(OutputStream out, int limit) {
+			this.out = out;
+			this.limit = limit;
+			this.copy = limit > 0 ? new ByteArrayOutputStream() : null;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			if (copy != null) {
+				if (copy.size() + length > limit) {
+					copy = null;
+				} else {
+					copy.write(bytes, offset, length);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+		// the full copy, or null if the body outgrew the limit
+		byte[] captured() {
+			return copy == null ? null : copy.toByteArray();
+		}
+	}
+}
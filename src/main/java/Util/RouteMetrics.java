@@ -0,0 +1,87 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RouteMetrics class holds the numbers kept for one route: a latency histogram, a counter per response status
+ * code and a gauge of requests currently in flight. The controller looks the route up once when it registers the
+ * handler, so the request path never touches a map.
+ */
+public class RouteMetrics {
+
+	private final String method;
+	private final String path;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder inFlight = new LongAdder();
+	// indexed by status code; a code's counter is created the first time the route answers with it
+	private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(600);
+
+	RouteMetrics(String method, String path) {
+		this.method = method;
+		this.path = path;
+	}
+
+	/**
+	 * Marks a request as started.
+	 *
+	 * @return the start time to hand back to end()
+	 */
+	public long begin() {
+		inFlight.increment();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Marks a request started with begin() as answered with the given status.
+	 */
+	public void end(long startNanos, int status) {
+		latency.recordSince(startNanos);
+		inFlight.decrement();
+		statusCounter(status).increment();
+	}
+
+	private LongAdder statusCounter(int status) {
+		int index = status >= 0 && status < statuses.length() ? status : 0;
+		LongAdder counter = statuses.get(index);
+		if (counter == null) {
+			statuses.compareAndSet(index, null, new LongAdder());
+			counter = statuses.get(index);
+		}
+		return counter;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * @return number of requests currently being handled
+	 */
+	public long getInFlight() {
+		return inFlight.sum();
+	}
+
+	/**
+	 * @return number of responses sent with the given status code, 0 if none
+	 */
+	public long getStatusCount(int status) {
+		LongAdder counter = statuses.get(status);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * @return number of distinct status slots, for iterating getStatusCount()
+	 */
+	public int getStatusSlots() {
+		return statuses.length();
+	}
+}
@@ -0,0 +1,50 @@
+package Util;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * The ServerThreads class builds the thread pool Jetty runs request handlers on. The mode is chosen with the
+ * socialmedia.server.threads system property:
+ *
+ * platform - handlers run on a bounded pool of platform threads (Javalin's default setup). A handler blocked in
+ *            JDBC holds its thread, so the pool size caps how many requests can be in flight.
+ * virtual  - each handler runs on its own virtual thread. Blocking in JDBC parks the virtual thread instead of a
+ *            platform thread, so the thread pool stops being the limit; the connection pool in ConnectionUtil
+ *            (bounded size, bounded borrow wait) is what limits concurrent database work.
+ *
+ * Jetty keeps its selector and acceptor threads on the platform pool in both modes.
+ */
+public class ServerThreads {
+
+	public static final String PLATFORM = "platform";
+	public static final String VIRTUAL = "virtual";
+
+	/**
+	 * @return the execution mode requested through socialmedia.server.threads, platform by default
+	 */
+	public static String mode() {
+		return System.getProperty("socialmedia.server.threads", PLATFORM);
+	}
+
+	/**
+	 * @return a Jetty thread pool for the requested execution mode
+	 */
+	public static QueuedThreadPool create() {
+		return create(mode());
+	}
+
+	public static QueuedThreadPool create(String mode) {
+		// same sizing Javalin uses for its default server
+		QueuedThreadPool threadPool = new QueuedThreadPool(
+				Integer.getInteger("socialmedia.server.maxThreads", 250),
+				Integer.getInteger("socialmedia.server.minThreads", 8),
+				60_000);
+		threadPool.setName("JettyServerThreadPool");
+		if (VIRTUAL.equals(mode)) {
+			threadPool.setUseVirtualThreads(true);
+		} else if (!PLATFORM.equals(mode)) {
+			throw new IllegalArgumentException("Unknown server thread mode " + mode);
+		}
+		return threadPool;
+	}
+}
@@ -0,0 +1,4 @@
+-- per-user listings filter on posted_by and page/order by message_id
+create index if not exists idx_message_posted_by_id on message (posted_by, message_id);
+-- time-range queries over time_posted_epoch
+create index if not exists idx_message_time_posted on message (time_posted_epoch);
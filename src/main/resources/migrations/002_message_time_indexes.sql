@@ -0,0 +1,6 @@
+-- time-range listings filter on time_posted_epoch and order by (time_posted_epoch, message_id)
+create index if not exists idx_message_time_posted_id on message (time_posted_epoch, message_id);
+-- the per-user variant adds posted_by in front
+create index if not exists idx_message_posted_by_time on message (posted_by, time_posted_epoch, message_id);
+-- a prefix of idx_message_time_posted_id, so it only costs writes
+drop index if exists idx_message_time_posted;
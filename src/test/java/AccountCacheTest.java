@@ -0,0 +1,119 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.CachingAccountDAO;
+import Model.Account;
+import Util.ConnectionUtil;
+
+/**
+ * Checks which account lookups CachingAccountDAO answers from memory and which go to the database. Rows are
+ * changed behind the DAO's back with plain SQL, so a lookup that still sees the old row was served from the cache.
+ */
+public class AccountCacheTest {
+    CachingAccountDAO accountDAO;
+
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        accountDAO = new CachingAccountDAO(16);
+    }
+
+    /**
+     * The first lookup misses and reads the row; the second, by username or by id, is a hit that does not see a
+     * change made directly in the table since.
+     */
+    @Test
+    public void secondLookupIsServedFromCache() throws SQLException {
+        Account first = accountDAO.getAccountByUsername("testuser1");
+        Assert.assertEquals(new Account(1, "testuser1", "password"), first);
+        Assert.assertEquals(1, accountDAO.getCacheStats().missCount());
+
+        setPassword(1, "changed");
+
+        Assert.assertEquals("password", accountDAO.getAccountByUsername("testuser1").getPassword());
+        Assert.assertEquals("password", accountDAO.getAccountById(1).getPassword());
+        Assert.assertEquals(2, accountDAO.getCacheStats().hitCount());
+        Assert.assertEquals(1, accountDAO.getCacheStats().missCount());
+    }
+
+    /**
+     * A username that does not exist is not cached, so registering it directly in the table is seen at once.
+     */
+    @Test
+    public void missesAreNotCached() throws SQLException {
+        Assert.assertNull(accountDAO.getAccountByUsername("newuser"));
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO Account (username, password) VALUES (?, ?)")) {
+            ps.setString(1, "newuser");
+            ps.setString(2, "password");
+            ps.executeUpdate();
+        }
+
+        Assert.assertNotNull(accountDAO.getAccountByUsername("newuser"));
+        Assert.assertEquals(0, accountDAO.getCacheStats().hitCount());
+        Assert.assertEquals(2, accountDAO.getCacheStats().missCount());
+    }
+
+    /**
+     * A newly created account is cached under both keys, and updating the password through the DAO drops it so the
+     * next lookup reads the new one.
+     */
+    @Test
+    public void createCachesAndPasswordUpdateInvalidates() throws SQLException {
+        Account created = accountDAO.createAccount(new Account("user2", "password"));
+
+        Assert.assertEquals(created, accountDAO.getAccountById(created.getAccount_id()));
+        Assert.assertEquals(created, accountDAO.getAccountByUsername("user2"));
+        Assert.assertEquals(2, accountDAO.getCacheStats().hitCount());
+        Assert.assertEquals(0, accountDAO.getCacheStats().missCount());
+
+        Assert.assertTrue(accountDAO.updatePassword(created.getAccount_id(), "newpassword"));
+
+        Assert.assertEquals("newpassword", accountDAO.getAccountByUsername("user2").getPassword());
+        Assert.assertEquals("newpassword", accountDAO.getAccountById(created.getAccount_id()).getPassword());
+    }
+
+    /**
+     * The two indexes evict on their own. Once the id index has let the account go, a password update still drops
+     * the stale copy held under its username.
+     */
+    @Test
+    public void passwordUpdateInvalidatesUsernameAfterIdEviction() throws Exception {
+        // an id index that evicts everything, so only the username index holds the account
+        accountDAO = new CachingAccountDAO(0, 16);
+        Assert.assertEquals("password", accountDAO.getAccountByUsername("testuser1").getPassword());
+        for (int wait = 0; wait < 100 && accountDAO.getCacheSize() > 0; wait++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, accountDAO.getCacheSize());
+
+        Assert.assertTrue(accountDAO.updatePassword(1, "newpassword"));
+
+        Assert.assertEquals("newpassword", accountDAO.getAccountByUsername("testuser1").getPassword());
+    }
+
+    /**
+     * Changing an account a lookup returned does not change what the cache holds.
+     */
+    @Test
+    public void cachedAccountsAreCopies() throws SQLException {
+        accountDAO.getAccountById(1).setPassword("tampered");
+
+        Assert.assertEquals("password", accountDAO.getAccountById(1).getPassword());
+    }
+
+    private static void setPassword(int accountId, String password) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE Account SET password = ? WHERE account_id = ?")) {
+            ps.setString(1, password);
+            ps.setInt(2, accountId);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.AccountDAO;
+import Model.Account;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AccountImportTest {
+    private static final String TOKEN = "import-secret";
+
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database and restart the Javalin app with an import token configured, so
+     * POST /accounts/import is registered.
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        System.setProperty("socialmedia.accounts.import.token", TOKEN);
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.accounts.import.token");
+    }
+
+    /**
+     * An NDJSON import creates the valid accounts, reports each bad record by line, and ends with the totals.
+     * Imported accounts can log in with the password from the file.
+     */
+    @Test
+    public void importNdjsonReportsRejectsAndCreatesAccounts() throws IOException, InterruptedException {
+        String body = "{\"username\": \"alice\", \"password\": \"alicepass\"}\n" +
+                "{\"username\": \"testuser1\", \"password\": \"password\"}\n" +
+                "\n" +
+                "{\"username\": \"alice\", \"password\": \"another\"}\n" +
+                "not json\n" +
+                "{\"username\": \"bob\", \"password\": \"abc\"}\n" +
+                "{\"username\": \"carol\", \"password\": \"carolpass\"}\n";
+        HttpResponse<String> response = importAccounts(body, "application/x-ndjson", TOKEN);
+        Assert.assertEquals(200, response.statusCode());
+
+        List<JsonNode> lines = lines(response.body());
+        JsonNode last = lines.get(lines.size() - 1);
+        Assert.assertTrue(last.toString(), last.get("complete").asBoolean());
+        Assert.assertEquals(6, last.get("read").asLong());
+        Assert.assertEquals(2, last.get("imported").asLong());
+        Assert.assertEquals(4, last.get("rejected").asLong());
+
+        Assert.assertEquals("Duplicate username.", reject(lines, 4).get("error").asText());
+        Assert.assertEquals("Invalid JSON.", reject(lines, 5).get("error").asText());
+        Assert.assertEquals("Password must be at least 4 characters.", reject(lines, 6).get("error").asText());
+        Assert.assertEquals("Username already exists.", reject(lines, 2).get("error").asText());
+
+        Assert.assertEquals(200, login("alice", "alicepass").statusCode());
+        Assert.assertEquals(200, login("carol", "carolpass").statusCode());
+        Assert.assertEquals(401, login("bob", "abcd").statusCode());
+    }
+
+    /**
+     * A CSV import finds its columns by the header and reads quoted fields; importing the same file again creates
+     * nothing and rejects every record as taken.
+     */
+    @Test
+    public void importCsvIsSafeToRepeat() throws IOException, InterruptedException {
+        String body = "password,username\r\n" +
+                "\"pass,word\",dave\r\n" +
+                "\"say \"\"hi\"\"\",\"erin\"\r\n";
+        HttpResponse<String> first = importAccounts(body, "text/csv", TOKEN);
+        Assert.assertEquals(200, first.statusCode());
+        JsonNode firstTotals = lines(first.body()).get(lines(first.body()).size() - 1);
+        Assert.assertEquals(2, firstTotals.get("imported").asLong());
+
+        Assert.assertEquals(200, login("dave", "pass,word").statusCode());
+        Assert.assertEquals(200, login("erin", "say \"hi\"").statusCode());
+
+        HttpResponse<String> second = importAccounts(body, "text/csv", TOKEN);
+        List<JsonNode> lines = lines(second.body());
+        JsonNode totals = lines.get(lines.size() - 1);
+        Assert.assertEquals(0, totals.get("imported").asLong());
+        Assert.assertEquals(2, totals.get("rejected").asLong());
+        Assert.assertEquals("Username already exists.", reject(lines, 2).get("error").asText());
+    }
+
+    /**
+     * A CSV record past the length limit, made mostly of separators and with a quoted line break, is rejected as a
+     * whole, and the record after it still imports.
+     */
+    @Test
+    public void importCsvSkipsOverlongRecord() throws IOException, InterruptedException {
+        String body = "username,password\n" +
+                "\"long\nname\"" + ",".repeat(200000) + "\n" +
+                "henry,henrypass\n";
+        HttpResponse<String> response = importAccounts(body, "text/csv", TOKEN);
+        Assert.assertEquals(200, response.statusCode());
+
+        List<JsonNode> lines = lines(response.body());
+        JsonNode totals = lines.get(lines.size() - 1);
+        Assert.assertEquals(1, totals.get("imported").asLong());
+        Assert.assertEquals(1, totals.get("rejected").asLong());
+        Assert.assertEquals("Record is too long.", reject(lines, 2).get("error").asText());
+        Assert.assertEquals(200, login("henry", "henrypass").statusCode());
+    }
+
+    /**
+     * Without the configured token the import is refused, and a CSV body without the needed columns is a 400.
+     */
+    @Test
+    public void importRequiresTokenAndHeader() throws IOException, InterruptedException {
+        Assert.assertEquals(401, importAccounts("{\"username\": \"x\", \"password\": \"xxxx\"}\n",
+                "application/x-ndjson", "wrong").statusCode());
+        Assert.assertEquals(400, importAccounts("name,secret\nx,xxxx\n", "text/csv", TOKEN).statusCode());
+    }
+
+    /**
+     * A batch that collides with an existing username still inserts the rest, and reports 0 for the taken one.
+     */
+    @Test
+    public void createAccountsSkipsTakenUsernames() throws Exception {
+        int[] ids = new AccountDAO().createAccounts(List.of(
+                new Account("frank", "hash1"), new Account("testuser1", "hash2"), new Account("grace", "hash3")));
+
+        Assert.assertTrue(ids[0] > 0);
+        Assert.assertEquals(0, ids[1]);
+        Assert.assertTrue(ids[2] > 0);
+        Assert.assertEquals("password", new AccountDAO().getAccountByUsername("testuser1").getPassword());
+    }
+
+    private HttpResponse<String> importAccounts(String body, String contentType, String token)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/import"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", contentType)
+                .header("X-Import-Token", token)
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> login(String username, String password) throws IOException, InterruptedException {
+        String body = objectMapper.createObjectNode().put("username", username).put("password", password).toString();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<JsonNode> lines(String body) throws IOException {
+        return body.lines().filter(line -> !line.isBlank()).map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (IOException e) {
+                throw new AssertionError(line, e);
+            }
+        }).toList();
+    }
+
+    private static JsonNode reject(List<JsonNode> lines, long line) {
+        for (JsonNode node : lines) {
+            if (node.has("error") && node.has("line") && node.get("line").asLong() == line) {
+                return node;
+            }
+        }
+        throw new AssertionError("No reject for line " + line + " in " + lines);
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.PoolMetrics;
+import io.javalin.Javalin;
+
+public class ConnectionPoolTest {
+    Javalin app;
+    List<Connection> held = new ArrayList<>();
+
+    /**
+     * Before every test, reset the database.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        for (Connection connection : held) {
+            connection.close();
+        }
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    /**
+     * The pool opens at most socialmedia.db.pool.maxSize connections, counts every borrow, and reports the
+     * connections handed out as active. Hikari refreshes its pool statistics at most once a second.
+     */
+    @Test
+    public void poolIsBoundedAndCountsBorrows() throws Exception {
+        PoolMetrics metrics = ConnectionUtil.getPoolMetrics();
+        Assert.assertEquals((int) Integer.getInteger("socialmedia.db.pool.maxSize", 10),
+                ConnectionUtil.getMaximumPoolSize());
+
+        long borrows = metrics.getBorrowCount();
+        held.add(ConnectionUtil.getConnection());
+        held.add(ConnectionUtil.getConnection());
+        Assert.assertEquals(borrows + 2, metrics.getBorrowCount());
+
+        Thread.sleep(1100);
+        Assert.assertTrue(metrics.toString(), metrics.getActiveConnections() >= 2);
+        Assert.assertTrue(metrics.toString(), metrics.getBorrowNanosMax() > 0);
+    }
+
+    /**
+     * With every connection handed out, a borrow gives up after the borrow timeout with an exception rather than
+     * returning null, and the timeout is counted.
+     */
+    @Test
+    public void exhaustedPoolTimesOutWithException() throws SQLException {
+        holdEveryConnection();
+        long timeouts = ConnectionUtil.getPoolMetrics().getBorrowTimeouts();
+
+        try {
+            ConnectionUtil.getConnection().close();
+            Assert.fail("Borrowed a connection from an exhausted pool.");
+        } catch (SQLTransientConnectionException expected) {
+        }
+        Assert.assertEquals(timeouts + 1, ConnectionUtil.getPoolMetrics().getBorrowTimeouts());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 while every connection is held elsewhere
+     *
+     * Expected Response:
+     *  Status Code: 503 with a Retry-After header, once the borrow has timed out
+     */
+    @Test
+    public void exhaustedPoolAnswers503() throws Exception {
+        app = new SocialMediaController().startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+        holdEveryConnection();
+
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages/1")).build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(503, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Retry-After").isPresent());
+    }
+
+    private void holdEveryConnection() throws SQLException {
+        while (held.size() < ConnectionUtil.getMaximumPoolSize()) {
+            held.add(ConnectionUtil.getConnection());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.JdbcExecutor;
+import io.javalin.Javalin;
+
+public class JdbcExecutorTest {
+    Javalin app;
+    JdbcExecutor executor;
+    List<Connection> held = new ArrayList<>();
+
+    /**
+     * Before every test, reset the database.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        for (Connection connection : held) {
+            connection.close();
+        }
+        if (app != null) {
+            app.stop();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        System.clearProperty("socialmedia.jdbc.queryConcurrency");
+        System.clearProperty("socialmedia.jdbc.queueCapacity");
+    }
+
+    /**
+     * Tasks run on virtual threads, no more than the concurrency at once; up to queueCapacity more wait for a
+     * slot, and one past that is turned away and counted.
+     */
+    @Test
+    public void admissionIsBoundedNotThreads() throws Exception {
+        executor = new JdbcExecutor("test", 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        List<Boolean> virtual = new ArrayList<>();
+        Runnable task = () -> {
+            synchronized (virtual) {
+                virtual.add(Thread.currentThread().isVirtual());
+            }
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            executor.execute(task);
+        }
+        try {
+            executor.execute(task);
+            Assert.fail("Executor admitted more than its concurrency and queue.");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        Assert.assertFalse(started.await(500, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, executor.getActiveCount());
+        Assert.assertEquals(1, executor.getQueueDepth());
+        Assert.assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(List.of(true, true, true), virtual);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages while the one listing slot and its one queue place
+     * are taken by listings waiting on an exhausted pool
+     *
+     * Expected Response:
+     *  Status Code: 503 with a Retry-After header, straight away rather than after the borrow timeout
+     */
+    @Test
+    public void saturatedExecutorAnswers503() throws Exception {
+        System.setProperty("socialmedia.jdbc.queryConcurrency", "1");
+        System.setProperty("socialmedia.jdbc.queueCapacity", "1");
+        app = new SocialMediaController().startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+        while (held.size() < ConnectionUtil.getMaximumPoolSize()) {
+            held.add(ConnectionUtil.getConnection());
+        }
+
+        HttpClient webClient = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages")).build();
+        List<CompletableFuture<HttpResponse<String>>> waiting = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            waiting.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        Thread.sleep(500);
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(503, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        for (CompletableFuture<HttpResponse<String>> listing : waiting) {
+            Assert.assertFalse(listing.isDone());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Checks the shared mapper and the streaming PATCH body reader behave the way the per-request ObjectMapper and the
+ * JsonNode tree they replaced did.
+ */
+public class JsonCodecTest {
+
+    /**
+     * Messages and accounts round-trip through the shared, Blackbird-enabled mapper unchanged.
+     */
+    @Test
+    public void sharedMapperRoundTripsModels() throws IOException {
+        Assert.assertTrue(JsonCodec.MAPPER.getRegisteredModuleIds()
+                .contains("com.fasterxml.jackson.module.blackbird.BlackbirdModule"));
+
+        Message message = new Message(7, 1, "round \"trip\"", 1669947792L);
+        Assert.assertEquals(message,
+                JsonCodec.MAPPER.readValue(JsonCodec.MAPPER.writeValueAsString(message), Message.class));
+        Account account = new Account(3, "user", "password");
+        Assert.assertEquals(account,
+                JsonCodec.MAPPER.readValue(JsonCodec.MAPPER.writeValueAsString(account), Account.class));
+    }
+
+    /**
+     * message_text is found wherever it sits among the top-level fields, with nested values before it skipped
+     * rather than searched.
+     */
+    @Test
+    public void readTextFieldSkipsOtherFields() throws IOException {
+        Assert.assertEquals("new text", read("{\"message_text\": \"new text\"}"));
+        Assert.assertEquals("new text", read("{\"posted_by\": 1, \"nested\": {\"message_text\": \"wrong\"}, " +
+                "\"list\": [{\"message_text\": \"wrong\"}], \"message_text\": \"new text\"}"));
+        Assert.assertNull(read("{\"message_text\": null}"));
+    }
+
+    /**
+     * A body that is not an object, lacks the field or nests it is rejected the way the controller answers 400.
+     */
+    @Test
+    public void readTextFieldRejectsBadBodies() throws IOException {
+        for (String body : new String[] {"[]", "{}", "{\"nested\": {\"message_text\": \"x\"}}",
+                "{\"message_text\": {\"a\": 1}}"}) {
+            try {
+                read(body);
+                Assert.fail(body);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static String read(String body) throws IOException {
+        return JsonCodec.readTextField(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "message_text");
+    }
+}
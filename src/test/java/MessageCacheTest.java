@@ -0,0 +1,103 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageCache;
+import Service.MessageService;
+import Util.ConnectionUtil;
+
+/**
+ * Checks that single message reads served from the message cache, including cached misses, always match the
+ * database as messages are created, updated and deleted.
+ */
+public class MessageCacheTest {
+    MessageDAO messageDAO;
+    MessageCache messageCache;
+    MessageService messageService;
+
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        messageDAO = new MessageDAO();
+        messageCache = new MessageCache(16, 300);
+        messageService = new MessageService(messageDAO, null, null, messageCache);
+    }
+
+    /**
+     * Reading an id before it exists caches the miss; creating the message must replace it, an update must show
+     * the new text and a delete must make the id missing again.
+     */
+    @Test
+    public void writesKeepCachedReadsCurrent() throws SQLException {
+        Assert.assertNull(messageService.getMessageById(2));
+        Assert.assertNull(messageService.getMessageById(2));
+
+        Message created = messageService.createMessage(new Message(1, "cached", 1669947792));
+        Assert.assertEquals(2, created.getMessage_id());
+        Assert.assertEquals(created, messageService.getMessageById(2));
+
+        messageService.updateMessage(2, "updated");
+        Assert.assertEquals("updated", messageService.getMessageById(2).getMessage_text());
+
+        messageService.deleteMessageById(2);
+        Assert.assertNull(messageService.getMessageById(2));
+        Assert.assertTrue(messageCache.getStats().hitCount() > 0);
+    }
+
+    /**
+     * A random sequence of writes and reads over a small id range, with a cache small enough to evict, comparing
+     * every read with the database.
+     */
+    @Test
+    public void randomOperationsMatchDatabase() throws SQLException {
+        Random random = new Random(18);
+        for (int step = 0; step < 2000; step++) {
+            int messageId = 1 + random.nextInt(40);
+            switch (random.nextInt(5)) {
+                case 0:
+                    messageService.createMessage(new Message(1, "text " + random.nextInt(), 1L));
+                    break;
+                case 1:
+                    List<Message> batch = new ArrayList<>();
+                    batch.add(new Message(1, "batch " + random.nextInt(), 1L));
+                    messageService.createMessages(batch);
+                    break;
+                case 2:
+                    messageService.updateMessage(messageId, "updated " + random.nextInt());
+                    break;
+                case 3:
+                    messageService.deleteMessageById(messageId);
+                    break;
+                default:
+                    break;
+            }
+            int readId = 1 + random.nextInt(40);
+            Assert.assertEquals("step " + step, messageDAO.getMessageById(readId), messageService.getMessageById(readId));
+        }
+    }
+
+    /**
+     * A write that commits while a read is still loading the old row leaves nothing stale behind: the load is not
+     * run inside the cache, so the write's invalidation goes straight through, and what the load read is answered
+     * but not kept.
+     */
+    @Test
+    public void writeDuringLoadIsNotOverwritten() throws SQLException {
+        Message before = new Message(2, 1, "before", 1L);
+        Message after = new Message(2, 1, "after", 1L);
+
+        Assert.assertEquals(before, messageCache.get(2, () -> {
+            messageCache.updated(2);
+            return before;
+        }));
+        Assert.assertEquals(after, messageCache.get(2, () -> after));
+        Assert.assertEquals(after, messageCache.get(2, () -> before));
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Model.Message;
+import Model.MessageEvent;
+import Service.MessageFeed;
+
+/**
+ * Checks the message feed's fan-out: a subscriber that falls behind is dropped without holding up the others, and
+ * resuming from a message_id neither loses nor repeats messages created while the replay runs, however they commit.
+ */
+public class MessageFeedTest {
+
+    /**
+     * A subscriber stuck in a send lets its queue fill and is dropped; a second subscriber still gets every event.
+     */
+    @Test(timeout = 10000)
+    public void slowSubscriberIsDropped() throws InterruptedException {
+        MessageFeed feed = new MessageFeed(2, 60);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink() {
+            @Override
+            public void send(MessageEvent event) {
+                stuck.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RecordingSink fast = new RecordingSink();
+        feed.subscribe(slow, null, null);
+        feed.subscribe(fast, null, null);
+
+        feed.created(message(2));
+        stuck.await();
+        Assert.assertEquals(2, fast.events.take().getMessage().getMessage_id());
+        // the fast subscriber takes each event before the next is published, so only the stuck one can overflow
+        for (int id = 3; id <= 6; id++) {
+            feed.created(message(id));
+            Assert.assertEquals(id, fast.events.take().getMessage().getMessage_id());
+        }
+        Assert.assertEquals(1, feed.getDroppedCount());
+        Assert.assertEquals(1, feed.getSubscriberCount());
+
+        release.countDown();
+        Assert.assertEquals(Boolean.TRUE, slow.closed.take());
+        feed.close();
+        Assert.assertEquals(Boolean.FALSE, fast.closed.take());
+    }
+
+    /**
+     * A create that commits while a resuming subscriber is replaying reaches it once, and live events follow.
+     */
+    @Test(timeout = 10000)
+    public void resumeReplaysWithoutRepeats() throws InterruptedException {
+        MessageFeed feed = new MessageFeed(16, 60);
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(sink, 3, (afterId, limit) -> {
+            Assert.assertEquals(3, afterId);
+            // message 5 commits and is published after the subscriber registered but before the replay read it
+            feed.created(message(5));
+            return List.of(message(4), message(5));
+        });
+        Assert.assertEquals(4, sink.events.take().getMessage().getMessage_id());
+        Assert.assertEquals(5, sink.events.take().getMessage().getMessage_id());
+
+        feed.updated(message(4));
+        feed.created(message(6));
+        MessageEvent updated = sink.events.take();
+        Assert.assertEquals(MessageEvent.UPDATED, updated.getType());
+        Assert.assertEquals(4, updated.getMessage().getMessage_id());
+        Assert.assertEquals(6, sink.events.take().getMessage().getMessage_id());
+        feed.close();
+        sink.closed.take();
+        Assert.assertTrue(sink.events.isEmpty());
+    }
+
+    /**
+     * Message 5 commits after message 6 was replayed: the live create of 6 is skipped, but 5 was never replayed and
+     * still reaches the subscriber.
+     */
+    @Test(timeout = 10000)
+    public void outOfOrderCommitIsNotSkipped() throws InterruptedException {
+        MessageFeed feed = new MessageFeed(16, 60);
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(sink, 3, (afterId, limit) -> {
+            feed.created(message(6));
+            return List.of(message(4), message(6));
+        });
+        Assert.assertEquals(4, sink.events.take().getMessage().getMessage_id());
+        Assert.assertEquals(6, sink.events.take().getMessage().getMessage_id());
+
+        feed.created(message(5));
+        Assert.assertEquals(5, sink.events.take().getMessage().getMessage_id());
+        feed.close();
+        sink.closed.take();
+        Assert.assertTrue(sink.events.isEmpty());
+    }
+
+    /**
+     * A subscriber far behind replays page by page while more creates are published than its queue holds; it
+     * takes them in between pages, so it is not dropped and gets every message once, in order.
+     */
+    @Test(timeout = 10000)
+    public void farBehindSubscriberCatchesUp() throws InterruptedException {
+        MessageFeed feed = new MessageFeed(4, 60, 2);
+        List<Message> committed = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) {
+            committed.add(message(id));
+        }
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(sink, 0, (afterId, limit) -> {
+            // while each of the first pages is read, three more messages commit and are published
+            if (committed.size() < 15) {
+                for (int i = 0; i < 3; i++) {
+                    Message message = message(committed.size() + 1);
+                    committed.add(message);
+                    feed.created(message);
+                }
+            }
+            return committed.stream().filter(m -> m.getMessage_id() > afterId).limit(limit).toList();
+        });
+
+        for (int id = 1; id <= 15; id++) {
+            Assert.assertEquals(id, sink.events.take().getMessage().getMessage_id());
+        }
+        Assert.assertEquals(0, feed.getDroppedCount());
+        feed.close();
+        Assert.assertEquals(Boolean.FALSE, sink.closed.take());
+        Assert.assertTrue(sink.events.isEmpty());
+    }
+
+    /**
+     * Only the last page's ids are kept, so a live create of a message an earlier page replayed is still skipped on
+     * the replay's position alone.
+     */
+    @Test(timeout = 10000)
+    public void createFromEarlierPageIsNotRepeated() throws InterruptedException {
+        MessageFeed feed = new MessageFeed(16, 60, 2);
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(sink, 0, (afterId, limit) -> {
+            if (afterId == 4) {
+                // message 1, replayed two pages ago, is published while the last page is read
+                feed.created(message(1));
+                return List.of(message(5));
+            }
+            return List.of(message(afterId + 1), message(afterId + 2));
+        });
+        for (int id = 1; id <= 5; id++) {
+            Assert.assertEquals(id, sink.events.take().getMessage().getMessage_id());
+        }
+
+        feed.created(message(6));
+        Assert.assertEquals(6, sink.events.take().getMessage().getMessage_id());
+        feed.close();
+        sink.closed.take();
+        Assert.assertTrue(sink.events.isEmpty());
+    }
+
+    private static Message message(int id) {
+        return new Message(id, 1, "message " + id, 1669947792);
+    }
+
+    private static class RecordingSink implements MessageFeed.Sink {
+        final BlockingQueue<MessageEvent> events = new LinkedBlockingQueue<>();
+        final BlockingQueue<Boolean> closed = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(MessageEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close(boolean dropped) {
+            closed.add(dropped);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Util.ConnectionUtil;
+
+public class MessageIndexTest {
+
+    /**
+     * Before every test, reset the database, which also applies the schema migrations.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    /**
+     * The keyset-paginated listing of all messages should be a range scan on the primary key, with no sort.
+     */
+    @Test
+    public void pageUsesPrimaryKey() throws SQLException {
+        String plan = explain(MessageDAO.MESSAGES_AFTER, 0, 10);
+
+        Assert.assertTrue(plan, plan.contains("PRIMARY_KEY_"));
+        Assert.assertTrue(plan, plan.contains("MESSAGE_ID > ?1"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    /**
+     * The keyset-paginated per-user listing should be a range scan on the (posted_by, message_id) index, with no
+     * sort, so the LIMIT stops the scan instead of applying to every matching row.
+     */
+    @Test
+    public void perUserPageUsesPostedByMessageIdIndex() throws SQLException {
+        String plan = explain(MessageDAO.MESSAGES_BY_USER_ID_AFTER, 1, 0, 10);
+
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_POSTED_BY_ID: POSTED_BY = ?1"));
+        Assert.assertTrue(plan, plan.contains("MESSAGE_ID > ?2"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    /**
+     * The full per-user listing should be read from the (posted_by, message_id) index, which also gives its order,
+     * rather than from the foreign key's index on posted_by followed by a sort.
+     */
+    @Test
+    public void perUserListingUsesPostedByMessageIdIndex() throws SQLException {
+        String plan = explain(MessageDAO.MESSAGES_BY_USER_ID, 1);
+
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_POSTED_BY_ID: POSTED_BY = ?1"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    /**
+     * The time-range listing should be a range scan on the (time_posted_epoch, message_id) index, with no sort.
+     */
+    @Test
+    public void timeRangeUsesTimePostedIndex() throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String plan = explain(MessageDAO.messagesInRange(1669900000L, 1670000000L, params), params.toArray());
+
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_TIME_POSTED_ID: TIME_POSTED_EPOCH >= ?1"));
+        Assert.assertTrue(plan, plan.contains("TIME_POSTED_EPOCH < ?2"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    /**
+     * Every migration is recorded once in schema_version, and running the migrations again applies nothing.
+     */
+    @Test
+    public void migrationsAreRecordedOnce() throws SQLException {
+        ConnectionUtil.migrate();
+
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT script FROM schema_version ORDER BY script");
+             ResultSet rs = ps.executeQuery()) {
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals("migrations/001_message_indexes.sql", rs.getString(1));
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals("migrations/002_message_time_indexes.sql", rs.getString(1));
+            Assert.assertFalse(rs.next());
+        }
+    }
+
+    private String explain(String query, Object... params) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
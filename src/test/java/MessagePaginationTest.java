@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessagePaginationTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web. Four more messages are posted, alternating between account 1 and a newly
+     * registered account 2, so there are five in all and three by account 1.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        post("/register", "{\"username\": \"user2\", \"password\": \"password\"}");
+        for (int i = 2; i <= 5; i++) {
+            post("/messages", "{\"posted_by\":" + (i % 2 == 0 ? 2 : 1) + ", \"message_text\": \"message " + i +
+                    "\", \"time_posted_epoch\": 1669947792}");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Walking GET localhost:8080/messages?limit=2 by following X-Next-Cursor
+     *
+     * Expected Response:
+     *  Status Code: 200 on every page, pages of two in message_id order, no X-Next-Cursor on the last page, and
+     *  together the same messages as the unpaged listing
+     */
+    @Test
+    public void walkAllMessagesByCursor() throws IOException, InterruptedException {
+        List<Integer> walked = walk("/messages?limit=2", "/messages?limit=2&after=");
+
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), walked);
+        Assert.assertEquals(walked, ids(get("/messages")));
+    }
+
+    /**
+     * Walking GET localhost:8080/accounts/1/messages?limit=2 by following X-Next-Cursor
+     *
+     * Expected Response:
+     *  Status Code: 200 on every page, only account 1's messages, no X-Next-Cursor on the last page
+     */
+    @Test
+    public void walkAccountMessagesByCursor() throws IOException, InterruptedException {
+        List<Integer> walked = walk("/accounts/1/messages?limit=2", "/accounts/1/messages?limit=2&after=");
+
+        Assert.assertEquals(List.of(1, 3, 5), walked);
+        Assert.assertEquals(walked, ids(get("/accounts/1/messages")));
+    }
+
+    /**
+     * Sending http requests with a cursor at or past the last message
+     *
+     * Expected Response:
+     *  Status Code: 200, an empty list and no X-Next-Cursor
+     */
+    @Test
+    public void exhaustedCursorReturnsEmptyPage() throws IOException, InterruptedException {
+        for (String path : List.of("/messages?after=5", "/messages?after=999&limit=2", "/accounts/1/messages?after=5")) {
+            HttpResponse<String> response = get(path);
+            Assert.assertEquals(path, 200, response.statusCode());
+            Assert.assertEquals(path, List.of(), ids(response));
+            Assert.assertEquals(path, Optional.empty(), response.headers().firstValue("X-Next-Cursor"));
+        }
+    }
+
+    /**
+     * Sending http requests with a cursor or limit that is negative, zero or not a number
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidCursorOrLimitIsRejected() throws IOException, InterruptedException {
+        for (String path : List.of("/messages?after=-1", "/messages?after=abc", "/messages?limit=0",
+                "/messages?limit=x", "/accounts/1/messages?after=-1", "/accounts/1/messages?limit=-2")) {
+            Assert.assertEquals(path, 400, get(path).statusCode());
+        }
+    }
+
+    // follows X-Next-Cursor from the first page to the last, checking each page is within the limit
+    private List<Integer> walk(String first, String next) throws IOException, InterruptedException {
+        List<Integer> walked = new ArrayList<>();
+        String path = first;
+        while (path != null) {
+            HttpResponse<String> response = get(path);
+            Assert.assertEquals(200, response.statusCode());
+            List<Integer> page = ids(response);
+            Assert.assertTrue(page.toString(), page.size() <= 2);
+            walked.addAll(page);
+            Optional<String> cursor = response.headers().firstValue("X-Next-Cursor");
+            if (cursor.isPresent()) {
+                Assert.assertEquals(page.get(page.size() - 1), Integer.valueOf(cursor.get()));
+                path = next + cursor.get();
+            } else {
+                path = null;
+            }
+        }
+        return walked;
+    }
+
+    private List<Integer> ids(HttpResponse<String> response) throws IOException {
+        List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageStreamTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Opening GET localhost:8080/messages/stream, then sending POST localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200, Content-Type text/event-stream, and a "created" event for the new message with its
+     *  message_id as the event id
+     */
+    @Test(timeout = 20000)
+    public void streamSendsNewMessages() throws Exception {
+        Iterator<String> lines = openStream(null);
+        post("{\"posted_by\":1, \"message_text\": \"pushed message\", \"time_posted_epoch\": 1669947792}");
+
+        Assert.assertEquals("id: 2", nextField(lines));
+        Assert.assertEquals("event: created", nextField(lines));
+        String data = nextField(lines);
+        Assert.assertTrue(data, data.startsWith("data: ") && data.contains("\"message_text\":\"pushed message\""));
+    }
+
+    /**
+     * Opening GET localhost:8080/messages/stream with Last-Event-ID: 0, then deleting message 1
+     *
+     * Expected Response:
+     *  the existing message 1 is replayed as "created", followed by a "deleted" event with no id
+     */
+    @Test(timeout = 20000)
+    public void streamResumesFromLastEventId() throws Exception {
+        Iterator<String> lines = openStream("0");
+        Assert.assertEquals("id: 1", nextField(lines));
+        Assert.assertEquals("event: created", nextField(lines));
+        Assert.assertTrue(nextField(lines).contains("\"message_text\":\"test message 1\""));
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        Assert.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assert.assertEquals("event: deleted", nextField(lines));
+        Assert.assertTrue(nextField(lines).contains("\"message_id\":1"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/stream with a negative Last-Event-ID
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void streamRejectsInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream"))
+                .header("Last-Event-ID", "-1")
+                .build();
+        Assert.assertEquals(400, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Connecting a WebSocket to ws://localhost:8080/messages/stream?after=0, then sending POST localhost:8080/messages
+     *
+     * Expected Response:
+     *  one JSON event per frame: message 1 replayed as created, then the new message as created
+     */
+    @Test(timeout = 20000)
+    public void webSocketSendsReplayAndNewMessages() throws Exception {
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        WebSocket webSocket = webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/messages/stream?after=0"), new WebSocket.Listener() {
+                    StringBuilder text = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        text.append(data);
+                        if (last) {
+                            frames.add(text.toString());
+                            text = new StringBuilder();
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                })
+                .join();
+        String replayed = frames.take();
+        Assert.assertTrue(replayed, replayed.contains("\"type\":\"created\"") && replayed.contains("test message 1"));
+
+        post("{\"posted_by\":1, \"message_text\": \"pushed message\", \"time_posted_epoch\": 1669947792}");
+        String created = frames.take();
+        Assert.assertTrue(created, created.contains("\"message_id\":2") && created.contains("pushed message"));
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    // the stream's lines, once the response headers have arrived
+    private Iterator<String> openStream(String lastEventId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = webClient
+                .sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .join();
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+        return response.body().iterator();
+    }
+
+    // the next line that is neither blank nor a comment
+    private static String nextField(Iterator<String> lines) {
+        while (true) {
+            String line = lines.next();
+            if (!line.isEmpty() && !line.startsWith(":")) {
+                return line;
+            }
+        }
+    }
+
+    private void post(String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
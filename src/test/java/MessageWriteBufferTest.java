@@ -0,0 +1,189 @@
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Model.MessageEvent;
+import Service.MessageFeed;
+import Service.MessageService;
+import Service.MessageWriteBuffer;
+import Service.SearchIndex;
+import Util.ConnectionUtil;
+
+/**
+ * Checks that the group-commit buffer batches concurrent creates, fails only the messages the database rejects,
+ * leaves no caller waiting when it is closed, and that a create whose caller gave up still reaches the indexes.
+ */
+public class MessageWriteBufferTest {
+    MessageWriteBuffer writeBuffer;
+
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        if (writeBuffer != null) {
+            writeBuffer.close();
+        }
+    }
+
+    /**
+     * Messages submitted well within the flush delay go out as one batch, each future completing with its own id.
+     */
+    @Test
+    public void submitsWithinTheDelayShareOneFlush() throws Exception {
+        writeBuffer = new MessageWriteBuffer(new MessageDAO(), 64, 200_000, 100);
+
+        List<CompletableFuture<Message>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(writeBuffer.submit(new Message(1, "batched " + i, 1669947792)));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            Message created = results.get(i).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(i + 2, created.getMessage_id());
+            Assert.assertEquals("batched " + i, created.getMessage_text());
+        }
+        Assert.assertEquals(1, writeBuffer.getFlushCount());
+        Assert.assertEquals(10, writeBuffer.getLastFlushSize());
+        Assert.assertEquals(10, writeBuffer.getMaxFlushSize());
+    }
+
+    /**
+     * A flush slower than the caller will wait reports a timeout, but once the message does commit it is still
+     * indexed for search and pushed to feed subscribers.
+     */
+    @Test
+    public void slowFlushStillReachesIndexesAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        MessageDAO slowDAO = new MessageDAO() {
+            @Override
+            public int[] createMessages(List<Message> messages) throws SQLException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createMessages(messages);
+            }
+        };
+        writeBuffer = new MessageWriteBuffer(slowDAO, 64, 1000, 100, 200);
+        MessageService messageService = new MessageService(new MessageDAO(), writeBuffer, null, null, new SearchIndex());
+        BlockingQueue<MessageEvent> events = new LinkedBlockingQueue<>();
+        MessageFeed.Subscription subscription = messageService.subscribe(new MessageFeed.Sink() {
+            @Override
+            public void send(MessageEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void heartbeat() {
+            }
+
+            @Override
+            public void close(boolean dropped) {
+            }
+        }, null, Runnable::run);
+
+        try {
+            messageService.createMessage(new Message(1, "written late", 1669947792));
+            Assert.fail("Create did not time out.");
+        } catch (SQLTimeoutException expected) {
+        }
+        release.countDown();
+
+        MessageEvent created = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(created);
+        Assert.assertEquals("written late", created.getMessage().getMessage_text());
+        Assert.assertEquals(1, messageService.searchMessages("late", 10).size());
+        subscription.close();
+    }
+
+    /**
+     * A message with an unknown author fails on its own; the rest of its batch is still written.
+     */
+    @Test
+    public void unknownAuthorFailsOnlyItsOwnMessage() throws Exception {
+        writeBuffer = new MessageWriteBuffer(new MessageDAO(), 64, 200_000, 100);
+
+        CompletableFuture<Message> before = writeBuffer.submit(new Message(1, "before", 1669947792));
+        CompletableFuture<Message> unknown = writeBuffer.submit(new Message(99, "nobody", 1669947792));
+        CompletableFuture<Message> after = writeBuffer.submit(new Message(1, "after", 1669947792));
+
+        Assert.assertTrue(before.get(5, TimeUnit.SECONDS).getMessage_id() > 0);
+        Assert.assertTrue(after.get(5, TimeUnit.SECONDS).getMessage_id() > 0);
+        try {
+            unknown.get(5, TimeUnit.SECONDS);
+            Assert.fail("Message with an unknown author was written.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        Assert.assertEquals(1, writeBuffer.getFlushCount());
+    }
+
+    /**
+     * Closing flushes what is already queued and refuses anything submitted afterwards.
+     */
+    @Test
+    public void closeFlushesQueuedMessages() throws Exception {
+        writeBuffer = new MessageWriteBuffer(new MessageDAO(), 64, 200_000, 100);
+        CompletableFuture<Message> queued = writeBuffer.submit(new Message(1, "queued", 1669947792));
+
+        writeBuffer.close();
+
+        Assert.assertTrue(queued.isDone());
+        Assert.assertEquals("queued", queued.get().getMessage_text());
+        try {
+            writeBuffer.submit(new Message(1, "too late", 1669947792));
+            Assert.fail("Closed buffer accepted a message.");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    /**
+     * When a flush is stuck past the close timeout, the messages still queued behind it are failed rather than
+     * left pending, and the stuck batch completes once its flush does.
+     */
+    @Test
+    public void closeFailsMessagesItCouldNotFlush() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writeBuffer = new MessageWriteBuffer(new MessageDAO() {
+            @Override
+            public int[] createMessages(List<Message> messages) throws SQLException {
+                flushing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return super.createMessages(messages);
+            }
+        }, 1, 0, 100);
+
+        CompletableFuture<Message> stuck = writeBuffer.submit(new Message(1, "stuck", 1669947792));
+        Assert.assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Message> waiting = writeBuffer.submit(new Message(1, "waiting", 1669947792));
+
+        writeBuffer.close();
+
+        Assert.assertTrue(waiting.isCompletedExceptionally());
+        release.countDown();
+        Assert.assertEquals("stuck", stuck.get(5, TimeUnit.SECONDS).getMessage_text());
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.Metrics;
+import io.javalin.Javalin;
+
+public class MetricsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/metrics before and after GET localhost:8080/messages/1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text in which the route's 200 counter and latency count, and the DAO method's
+     *  timing count, have each gone up by one
+     */
+    @Test
+    public void metricsCountRequestsAndQueries() throws IOException, InterruptedException {
+        String routeLabels = "method=\"GET\",route=\"/messages/{message_id}\"";
+        String requests = "socialmedia_http_requests_total{" + routeLabels + ",status=\"200\"}";
+        String latency = "socialmedia_http_request_duration_seconds_count{" + routeLabels + "}";
+        String query = "socialmedia_db_query_duration_seconds_count{dao=\"MessageDAO\",method=\"getMessageById\"}";
+
+        String before = scrape();
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        HttpResponse<String> response = webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        String after = scrape();
+
+        Assert.assertEquals(sample(before, requests) + 1, sample(after, requests));
+        Assert.assertEquals(sample(before, latency) + 1, sample(after, latency));
+        Assert.assertEquals(sample(before, query) + 1, sample(after, query));
+        Assert.assertTrue(after.contains("# TYPE socialmedia_http_request_duration_seconds histogram"));
+        Assert.assertTrue(after.contains("socialmedia_http_requests_in_flight{" + routeLabels + "} 0"));
+        Assert.assertTrue(after.contains("socialmedia_db_pool_connections{state=\"active\"}"));
+        Assert.assertTrue(after.contains("socialmedia_account_cache_evictions_total"));
+    }
+
+    /**
+     * Once the app has stopped, the registry no longer exports, or holds on to, the gauges that read its pool,
+     * caches and executors.
+     */
+    @Test
+    public void stoppedAppUnregistersGauges() throws IOException, InterruptedException {
+        Assert.assertTrue(scrape().contains("socialmedia_jdbc_executor_active{executor=\"jdbc-query\"}"));
+
+        app.stop();
+        app = null;
+
+        String scrape = Metrics.scrape();
+        Assert.assertFalse(scrape, scrape.contains("socialmedia_jdbc_executor_active"));
+        Assert.assertFalse(scrape, scrape.contains("socialmedia_db_pool_connections"));
+    }
+
+    private String scrape() throws IOException, InterruptedException {
+        HttpRequest metricsRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/metrics"))
+                .build();
+        HttpResponse<String> response = webClient.send(metricsRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        return response.body();
+    }
+
+    // value of the sample with exactly this name and labels, 0 if it has not been exported yet
+    private static long sample(String scrape, String series) {
+        for (String line : scrape.split("\n")) {
+            if (line.startsWith(series + " ")) {
+                return Long.parseLong(line.substring(series.length() + 1));
+            }
+        }
+        return 0;
+    }
+}
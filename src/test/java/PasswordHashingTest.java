@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.AccountDAO;
+import DAO.CachingAccountDAO;
+import Model.Account;
+import Service.AccountService;
+import Service.PasswordVerifier;
+import Util.ConnectionUtil;
+import Util.PasswordHasher;
+import io.javalin.Javalin;
+
+public class PasswordHashingTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then POST localhost:8080/login with the same
+     * credentials
+     *
+     * Expected Response:
+     *  Status Code: 200 for both, with the account as sent
+     *  Database: the password column holds a salted hash, not the password
+     */
+    @Test
+    public void registeredPasswordIsStoredHashed() throws IOException, InterruptedException, SQLException {
+        HttpResponse<String> registerResponse = post("/register", "user", "password");
+        Assert.assertEquals(200, registerResponse.statusCode());
+        Assert.assertEquals(new Account(2, "user", "password"),
+                objectMapper.readValue(registerResponse.body(), Account.class));
+
+        String stored = storedPassword("user");
+        Assert.assertTrue(stored.startsWith("pbkdf2-sha256$"));
+        Assert.assertFalse(stored.contains("password"));
+
+        HttpResponse<String> loginResponse = post("/login", "user", "password");
+        Assert.assertEquals(200, loginResponse.statusCode());
+        Assert.assertEquals(new Account(2, "user", "password"),
+                objectMapper.readValue(loginResponse.body(), Account.class));
+        Assert.assertEquals(401, post("/login", "user", "wrongpassword").statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login for an account whose password was stored in plaintext
+     *
+     * Expected Response:
+     *  Status Code: 200, and the stored password is replaced with a hash soon after; logging in again still works
+     */
+    @Test
+    public void plaintextPasswordIsRehashedOnLogin() throws IOException, InterruptedException, SQLException {
+        Assert.assertEquals("password", storedPassword("testuser1"));
+
+        Assert.assertEquals(200, post("/login", "testuser1", "password").statusCode());
+        // the fresh hash is stored in the background, after the login has answered
+        for (int wait = 0; wait < 100 && !storedPassword("testuser1").startsWith("pbkdf2-sha256$"); wait++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(storedPassword("testuser1").startsWith("pbkdf2-sha256$"));
+
+        HttpResponse<String> loginResponse = post("/login", "testuser1", "password");
+        Assert.assertEquals(200, loginResponse.statusCode());
+        Assert.assertEquals(new Account(1, "testuser1", "password"),
+                objectMapper.readValue(loginResponse.body(), Account.class));
+    }
+
+    /**
+     * A plaintext password that verifies logs the user in even when storing its fresh hash fails; the upgrade is
+     * left for the next login.
+     */
+    @Test
+    public void failedRehashDoesNotFailLogin() throws Exception {
+        CountDownLatch attempted = new CountDownLatch(1);
+        AccountDAO failingDAO = new AccountDAO() {
+            @Override
+            public boolean updatePassword(int accountId, String password) throws SQLException {
+                attempted.countDown();
+                throw new SQLException("write failed");
+            }
+        };
+        try (PasswordVerifier passwordVerifier = new PasswordVerifier(new PasswordHasher(1000), 1, 16, 0)) {
+            AccountService accountService = new AccountService(failingDAO, passwordVerifier);
+
+            Assert.assertEquals(new Account(1, "testuser1", "password"),
+                    accountService.loginUser(new Account("testuser1", "password")).get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(attempted.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals("password", storedPassword("testuser1"));
+        }
+    }
+
+    /**
+     * A login for a username that does not exist runs a full password verification, against a dummy hash, just as
+     * a wrong password for a real account does; the two cannot be told apart by how long they take.
+     */
+    @Test
+    public void unknownUsernameCostsAVerification() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        PasswordHasher hasher = new PasswordHasher(1000) {
+            @Override
+            public boolean verify(String password, String stored) {
+                verifications.incrementAndGet();
+                return super.verify(password, stored);
+            }
+        };
+        try (PasswordVerifier passwordVerifier = new PasswordVerifier(hasher, 1, 16, 0)) {
+            AccountService accountService = new AccountService(new AccountDAO(), passwordVerifier);
+
+            Assert.assertNull(accountService.loginUser(new Account("nobody", "password")).get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, verifications.get());
+            Assert.assertNull(accountService.loginUser(new Account("testuser1", "wrong")).get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, verifications.get());
+        }
+    }
+
+    /**
+     * Registering a username the account cache holds is refused without hashing the password; one only the table
+     * knows is refused by the insert, and a new one is hashed once.
+     */
+    @Test
+    public void cachedUsernameIsRefusedBeforeHashing() throws Exception {
+        AtomicInteger hashes = new AtomicInteger();
+        PasswordHasher hasher = new PasswordHasher(1000) {
+            @Override
+            public String hash(String password) {
+                // the verifier also hashes a random password for its dummy hash; only ours are counted
+                if (password.equals("registerpass")) {
+                    hashes.incrementAndGet();
+                }
+                return super.hash(password);
+            }
+        };
+        try (PasswordVerifier passwordVerifier = new PasswordVerifier(hasher, 1, 16, 0)) {
+            CachingAccountDAO accountDAO = new CachingAccountDAO();
+            AccountService accountService = new AccountService(accountDAO, passwordVerifier);
+
+            try {
+                accountService.registerUser(new Account("testuser1", "registerpass"));
+                Assert.fail("Taken username was registered.");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertEquals("Username already exists.", expected.getMessage());
+            }
+            Assert.assertEquals(1, hashes.get());
+
+            accountDAO.getAccountByUsername("testuser1");
+            try {
+                accountService.registerUser(new Account("testuser1", "registerpass"));
+                Assert.fail("Taken username was registered.");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertEquals("Username already exists.", expected.getMessage());
+            }
+            Assert.assertEquals(1, hashes.get());
+
+            Assert.assertTrue(accountService.registerUser(new Account("newuser", "registerpass")).getAccount_id() > 0);
+            Assert.assertEquals(2, hashes.get());
+        }
+    }
+
+    private HttpResponse<String> post(String path, String username, String password)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"" + username + "\", " +
+                        "\"password\": \"" + password + "\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String storedPassword(String username) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT password FROM Account WHERE username = ?")) {
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            Assert.assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import DAO.CachingAccountDAO;
+import Model.Account;
+import Service.AccountService;
+import Service.PasswordVerifier;
+import Util.ConnectionUtil;
+import Util.PasswordHasher;
+import io.javalin.Javalin;
+
+public class RegistrationRaceTest {
+    private static final int THREADS = 32;
+
+    Javalin app;
+
+    /**
+     * Before every test, reset the database.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    /**
+     * Many threads registering the same username at once: exactly one succeeds, every other one is told the name
+     * is taken, and only one account exists afterwards.
+     */
+    @Test
+    public void concurrentRegistrationsOfOneUsernameCreateOneAccount() throws Exception {
+        PasswordVerifier passwordVerifier = new PasswordVerifier(new PasswordHasher(1000), 4, 256, 0);
+        AccountService accountService = new AccountService(new CachingAccountDAO(), passwordVerifier);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        accountService.registerUser(new Account("contested", "password"));
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get()) {
+                    created++;
+                }
+            }
+            Assert.assertEquals(1, created);
+            Assert.assertEquals(1, countAccounts("contested"));
+        } finally {
+            pool.shutdownNow();
+            passwordVerifier.close();
+        }
+    }
+
+    /**
+     * The same over HTTP: one 200 and a 400 for every other request, never a 500.
+     */
+    @Test
+    public void concurrentRegisterRequestsGetOne200() throws Exception {
+        app = new SocialMediaController().startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        HttpClient webClient = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"contested\", \"password\": \"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.get().statusCode();
+            if (status == 200) {
+                ok++;
+            } else {
+                Assert.assertEquals(400, status);
+            }
+        }
+        Assert.assertEquals(1, ok);
+        Assert.assertEquals(1, countAccounts("contested"));
+    }
+
+    private static int countAccounts(String username) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM Account WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.ResponseCompression;
+import io.javalin.Javalin;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class ResponseCompressionTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with Accept-Encoding gzip, then deflate, for a listing
+     * well over the size threshold
+     *
+     * Expected Response:
+     *  Status Code: 200, Content-Encoding as asked, and a body that decompresses to the uncompressed listing;
+     *  asking again for the unchanged listing returns the same bytes
+     */
+    @Test
+    public void largeListingIsCompressed() throws IOException, InterruptedException {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"posted_by\":1, \"message_text\": \"message number ")
+                    .append(i).append("\", \"time_posted_epoch\": 1669947792}");
+        }
+        HttpRequest postBatchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(batch.append("]").toString()))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postBatchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<byte[]> plain = get("/messages", null);
+        Assert.assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+        String expected = new String(plain.body(), StandardCharsets.UTF_8);
+
+        HttpResponse<byte[]> gzipped = get("/messages", "gzip");
+        Assert.assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+        Assert.assertTrue(gzipped.body().length < plain.body().length / 2);
+        Assert.assertEquals(expected, decode(new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))));
+        Assert.assertArrayEquals(gzipped.body(), get("/messages", "gzip").body());
+
+        HttpResponse<byte[]> deflated = get("/messages", "deflate");
+        Assert.assertEquals("deflate", deflated.headers().firstValue("Content-Encoding").orElse(null));
+        Assert.assertEquals(expected, decode(new InflaterInputStream(new ByteArrayInputStream(deflated.body()))));
+
+        HttpResponse<byte[]> userListing = get("/accounts/1/messages", "gzip, deflate");
+        Assert.assertEquals("gzip", userListing.headers().firstValue("Content-Encoding").orElse(null));
+        Assert.assertEquals(expected, decode(new GZIPInputStream(new ByteArrayInputStream(userListing.body()))));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages with Accept-Encoding gzip for a listing under the
+     * size threshold
+     *
+     * Expected Response:
+     *  Status Code: 200 with the listing sent as it is
+     */
+    @Test
+    public void smallListingIsNotCompressed() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = get("/messages", "gzip");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        Assert.assertTrue(new String(response.body(), StandardCharsets.UTF_8).contains("test message 1"));
+    }
+
+    /**
+     * A compressed listing is only kept once its writer commits it; one whose writer failed halfway and closed the
+     * stream without committing is sent truncated but never served again from the cache.
+     */
+    @Test
+    public void onlyCommittedBodiesAreCached() throws IOException {
+        ResponseCompression compression = new ResponseCompression(List.of("gzip"), 6, 16, 1 << 20, 1 << 16);
+        byte[] listing = "[{\"message_text\": \"a message long enough to compress\"}]".getBytes(StandardCharsets.UTF_8);
+
+        try (ResponseCompression.Body body = compression.open(response(), "gzip", "/messages gzip", "\"1\"")) {
+            body.write(listing, 0, listing.length - 1);
+        }
+        Assert.assertNull(compression.cached("/messages gzip", "\"1\""));
+
+        try (ResponseCompression.Body body = compression.open(response(), "gzip", "/messages gzip", "\"2\"")) {
+            body.write(listing);
+            body.commit();
+        }
+        byte[] cached = compression.cached("/messages gzip", "\"2\"");
+        Assert.assertNotNull(cached);
+        Assert.assertArrayEquals(listing, new GZIPInputStream(new ByteArrayInputStream(cached)).readAllBytes());
+    }
+
+    // a servlet response whose body goes nowhere
+    private static HttpServletResponse response() throws IOException {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+        return response;
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String decode(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Service.SearchIndex;
+import Util.ConnectionUtil;
+
+/**
+ * Checks that searches answered from the inverted index always match a brute-force search of the database as
+ * messages are created, updated and deleted, and that a rebuild picks up what is already stored.
+ */
+public class SearchIndexTest {
+    private static final String[] WORDS = {"red", "green", "blue", "apple", "pear", "plum", "Red", "APPLE"};
+
+    MessageDAO messageDAO;
+    SearchIndex searchIndex;
+    MessageService messageService;
+
+    @Before
+    public void setUp() throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        messageDAO = new MessageDAO();
+        searchIndex = new SearchIndex();
+        messageService = new MessageService(messageDAO, null, null, null, searchIndex);
+        messageService.rebuildSearchIndex();
+    }
+
+    /**
+     * Terms are lowercase runs of letters and digits, each listed once.
+     */
+    @Test
+    public void termsSplitOnPunctuationAndIgnoreCase() {
+        Assert.assertEquals(List.of("hello", "world", "123abc", "café"),
+                SearchIndex.terms("Hello, WORLD! hello 123abc -- Café"));
+        Assert.assertTrue(SearchIndex.terms(" ?! ").isEmpty());
+    }
+
+    /**
+     * The existing message is found after a rebuild; an update moves it to its new words, dropping the terms no
+     * message has any more, and a delete removes it.
+     */
+    @Test
+    public void writesKeepSearchesCurrent() throws SQLException {
+        Assert.assertEquals(1, messageService.searchMessages("TEST message", 10).size());
+        int termCount = searchIndex.getTermCount();
+
+        messageService.updateMessage(1, "test something else");
+        Assert.assertTrue(messageService.searchMessages("message", 10).isEmpty());
+        Assert.assertEquals(1, messageService.searchMessages("test else", 10).size());
+        Assert.assertEquals(0, searchIndex.getStaleHits());
+        Assert.assertEquals(termCount, searchIndex.getTermCount());
+
+        messageService.deleteMessageById(1);
+        Assert.assertTrue(messageService.searchMessages("else", 10).isEmpty());
+        Assert.assertEquals(0, searchIndex.getTermCount());
+    }
+
+    /**
+     * A random sequence of writes over a small vocabulary, comparing every search with a brute-force match over
+     * every stored message.
+     */
+    @Test
+    public void randomOperationsMatchDatabase() throws SQLException {
+        Random random = new Random(22);
+        for (int step = 0; step < 1500; step++) {
+            int messageId = 1 + random.nextInt(60);
+            switch (random.nextInt(4)) {
+                case 0:
+                    messageService.createMessage(new Message(1, text(random), 1L));
+                    break;
+                case 1:
+                    List<Message> batch = new ArrayList<>();
+                    batch.add(new Message(1, text(random), 1L));
+                    batch.add(new Message(1, text(random), 1L));
+                    messageService.createMessages(batch);
+                    break;
+                case 2:
+                    messageService.updateMessage(messageId, text(random));
+                    break;
+                default:
+                    messageService.deleteMessageById(messageId);
+                    break;
+            }
+            String query = WORDS[random.nextInt(WORDS.length)]
+                    + (random.nextBoolean() ? " " + WORDS[random.nextInt(WORDS.length)] : "");
+            int limit = 1 + random.nextInt(8);
+            Assert.assertEquals("step " + step, bruteForce(query, limit), messageService.searchMessages(query, limit));
+        }
+    }
+
+    /**
+     * Thousands of ids per term, so postings span many blocks, with ids added out of order, updated and removed at
+     * random; searches are compared with a brute-force match over the same messages, held in memory.
+     */
+    @Test
+    public void largePostingsMatchBruteForce() throws SQLException {
+        SearchIndex index = new SearchIndex();
+        Map<Integer, Message> stored = new TreeMap<>();
+        Random random = new Random(128);
+        for (int id = 1; id <= 5000; id++) {
+            // every so often an id shows up late, the way concurrent commits can reach the index
+            int added = id % 50 == 0 && id > 100 ? id - 1 - random.nextInt(100) : id;
+            if (!stored.containsKey(added)) {
+                Message message = new Message(added, 1, numberText(added), 1L);
+                stored.put(added, message);
+                index.added(message);
+            }
+            Message previous = stored.get(1 + random.nextInt(id));
+            if (random.nextInt(10) == 0 && previous != null) {
+                Message updated = new Message(previous.getMessage_id(), 1, numberText(random.nextInt(5000)), 1L);
+                stored.put(updated.getMessage_id(), updated);
+                index.updated(previous, updated);
+            }
+            if (random.nextInt(10) == 0 && !stored.isEmpty()) {
+                Message removed = stored.remove(1 + random.nextInt(id));
+                if (removed != null) {
+                    index.removed(removed);
+                }
+            }
+        }
+        SearchIndex.Fetcher fetcher = ids -> {
+            List<Message> fetched = new ArrayList<>();
+            for (int id : ids) {
+                if (stored.containsKey(id)) {
+                    fetched.add(stored.get(id));
+                }
+            }
+            return fetched;
+        };
+        for (String query : new String[] {"two", "three", "five", "two three", "three five seven", "seven eleven", "none"}) {
+            for (int limit : new int[] {1, 20, 500, 5000}) {
+                List<String> terms = SearchIndex.terms(query);
+                List<Message> expected = stored.values().stream()
+                        .filter(message -> SearchIndex.terms(message.getMessage_text()).containsAll(terms))
+                        .sorted(Comparator.comparingInt(Message::getMessage_id).reversed())
+                        .limit(limit)
+                        .collect(Collectors.toList());
+                Assert.assertEquals(query + " " + limit, expected, index.search(terms, limit, fetcher));
+            }
+        }
+    }
+
+    // the names of the small primes dividing n
+    private static String numberText(int n) {
+        StringBuilder text = new StringBuilder("number");
+        String[] names = {"two", "three", "five", "seven", "eleven"};
+        int[] primes = {2, 3, 5, 7, 11};
+        for (int i = 0; i < primes.length; i++) {
+            if (n % primes[i] == 0) {
+                text.append(' ').append(names[i]);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String text(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(i % 2 == 0 ? ", " : " ");
+        }
+        return text.toString();
+    }
+
+    private List<Message> bruteForce(String query, int limit) throws SQLException {
+        List<String> terms = SearchIndex.terms(query);
+        return messageDAO.getAllMessages().stream()
+                .filter(message -> SearchIndex.terms(message.getMessage_text()).containsAll(terms))
+                .sorted(Comparator.comparingInt(Message::getMessage_id).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
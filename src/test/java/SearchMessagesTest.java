@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Posting two messages, then sending GET localhost:8080/messages/search?q=Message
+     *
+     * Expected Response:
+     *  Status Code: 200, every message containing the word, newest first; ?limit= caps the count
+     */
+    @Test
+    public void searchReturnsNewestMatchesFirst() throws IOException, InterruptedException {
+        post("{\"posted_by\":1, \"message_text\": \"another message\", \"time_posted_epoch\": 1669947792}");
+        post("{\"posted_by\":1, \"message_text\": \"unrelated\", \"time_posted_epoch\": 1669947792}");
+
+        List<Message> found = search("q=Message");
+        Assert.assertEquals(List.of(new Message(2, 1, "another message", 1669947792),
+                new Message(1, 1, "test message 1", 1669947792)), found);
+        Assert.assertEquals(1, search("q=message&limit=1").size());
+        Assert.assertTrue(search("q=missing").isEmpty());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search without a word to search for
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutWordsIsRejected() throws IOException, InterruptedException {
+        Assert.assertEquals(400, get("/messages/search").statusCode());
+        Assert.assertEquals(400, get("/messages/search?q=%20!").statusCode());
+    }
+
+    private List<Message> search(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages/search?" + query);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void post(String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
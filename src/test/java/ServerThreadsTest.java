@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.ServerThreads;
+import io.javalin.Javalin;
+
+public class ServerThreadsTest {
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database and create a new webClient. The app is started by each test, in the
+     * thread mode it checks.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        webClient = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        if (app != null) {
+            app.stop();
+        }
+        System.clearProperty("socialmedia.server.threads");
+    }
+
+    /**
+     * The mode property picks a Jetty pool that does or does not run handlers on virtual threads; anything else
+     * is refused at startup.
+     */
+    @Test
+    public void modeSelectsThreadPool() {
+        Assert.assertFalse(ServerThreads.create(ServerThreads.PLATFORM).isUseVirtualThreads());
+        Assert.assertTrue(ServerThreads.create(ServerThreads.VIRTUAL).isUseVirtualThreads());
+        try {
+            ServerThreads.create("green");
+            Assert.fail("Unknown mode accepted.");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * With socialmedia.server.threads=virtual, the account and message routes answer as they do by default.
+     */
+    @Test
+    public void virtualThreadModeServesRequests() throws Exception {
+        System.setProperty("socialmedia.server.threads", ServerThreads.VIRTUAL);
+        app = new SocialMediaController().startAPI();
+        app.start(8080);
+        Thread.sleep(1000);
+        Assert.assertTrue(((QueuedThreadPool) app.jettyServer().server().getThreadPool()).isUseVirtualThreads());
+
+        Assert.assertEquals(200, post("/register", "{\"username\": \"user2\", \"password\": \"password\"}"));
+        Assert.assertEquals(200, post("/login", "{\"username\": \"user2\", \"password\": \"password\"}"));
+        Assert.assertEquals(200, post("/messages",
+                "{\"posted_by\":2, \"message_text\": \"virtual\", \"time_posted_epoch\": 1669947792}"));
+        HttpResponse<String> listing = webClient.send(
+                HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/accounts/2/messages")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, listing.statusCode());
+        Assert.assertTrue(listing.body(), listing.body().contains("\"virtual\""));
+    }
+
+    private int post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SessionTokenTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with the token from POST localhost:8080/login and
+     * no posted_by, then again after POST localhost:8080/logout
+     *
+     * Expected Response:
+     *  Status Code: 200 with posted_by filled in from the token; 401 once the token has been revoked
+     */
+    @Test
+    public void tokenAuthorsMessagesUntilLogout() throws IOException, InterruptedException {
+        String token = login("testuser1", "password");
+
+        HttpResponse<String> response = postMessage(token, "{\"message_text\": \"hello\", \"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(200, response.statusCode());
+        Message created = objectMapper.readValue(response.body(), Message.class);
+        Assert.assertEquals(new Message(2, 1, "hello", 1669947792), created);
+
+        HttpRequest logoutRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/logout"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .header("Authorization", "Bearer " + token)
+                .build();
+        Assert.assertEquals(200, webClient.send(logoutRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        response = postMessage(token, "{\"message_text\": \"again\", \"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(401, response.statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with a tampered token, and with a valid token but
+     * someone else's posted_by
+     *
+     * Expected Response:
+     *  Status Code: 401 for the tampered token, 403 for posting as another account
+     */
+    @Test
+    public void tokenIsCheckedAndScopedToItsAccount() throws IOException, InterruptedException {
+        String token = login("testuser1", "password");
+        String body = "{\"posted_by\": 2, \"message_text\": \"hello\", \"time_posted_epoch\": 1669947792}";
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        Assert.assertEquals(401, postMessage(tampered, body).statusCode());
+        Assert.assertEquals(403, postMessage(token, body).statusCode());
+    }
+
+    /**
+     * Sending an http request to DELETE localhost:8080/messages/1 with the token of an account that did not post it
+     *
+     * Expected Response:
+     *  Status Code: 200 with an empty body, as for a missing message, and the message is still there
+     */
+    @Test
+    public void tokenCannotDeleteOthersMessages() throws IOException, InterruptedException {
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"user\", \"password\": \"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        String token = login("user", "password");
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response = webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().isEmpty());
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        Assert.assertFalse(webClient.send(getRequest, HttpResponse.BodyHandlers.ofString()).body().isEmpty());
+    }
+
+    private String login(String username, String password) throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"" + username + "\", " +
+                        "\"password\": \"" + password + "\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response.headers().firstValue("X-Session-Token").orElseThrow();
+    }
+
+    private HttpResponse<String> postMessage(String token, String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import Util.PoolMetrics;
+import io.javalin.Javalin;
+
+public class StreamedListingTest {
+    // more than one cursor fetch, so the listing has to be read in several round trips
+    private static final int MESSAGES = 600;
+
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web. MESSAGES more messages are then posted in batches.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        for (int posted = 0; posted < MESSAGES; posted += 300) {
+            StringBuilder batch = new StringBuilder("[");
+            for (int i = 0; i < 300; i++) {
+                batch.append(i == 0 ? "" : ",").append("{\"posted_by\":1, \"message_text\": \"streamed ")
+                        .append(posted + i).append("\", \"time_posted_epoch\": 1669947792}");
+            }
+            HttpRequest postRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofString(batch.append("]").toString()))
+                    .header("Content-Type", "application/json")
+                    .build();
+            Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages and GET localhost:8080/accounts/1/messages
+     *
+     * Expected Response:
+     *  Status Code: 200, every message in message_id order, sent without a Content-Length since the body is written
+     *  while the rows are still being read
+     */
+    @Test
+    public void fullListingsAreStreamedInOrder() throws IOException, InterruptedException {
+        for (String path : List.of("/messages", "/accounts/1/messages")) {
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            Assert.assertEquals(200, response.statusCode());
+            Assert.assertTrue(response.headers().firstValue("Content-Length").isEmpty());
+            List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+            Assert.assertEquals(MESSAGES + 1, messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                Assert.assertEquals(i + 1, messages.get(i).getMessage_id());
+            }
+        }
+    }
+
+    /**
+     * Opening GET localhost:8080/messages over a listing far bigger than the socket buffers, reading a little of
+     * it and then hanging up
+     *
+     * Expected Response:
+     *  while the client is stalled the cursor holds a pooled connection; once it disconnects the next failed write
+     *  closes the cursor and the connection goes back to the pool
+     */
+    @Test
+    public void disconnectedClientReleasesCursor() throws Exception {
+        try (Connection conn = ConnectionUtil.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Message (posted_by, message_text, time_posted_epoch) " +
+                    "SELECT 1, REPEAT('x', 200), X FROM SYSTEM_RANGE(1, 50000)");
+        }
+        PoolMetrics pool = ConnectionUtil.getPoolMetrics();
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", 8080));
+            socket.getOutputStream().write("GET /messages HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            Assert.assertTrue(in.read(new byte[1024]) > 0);
+
+            // pool statistics are refreshed at most once a second
+            Thread.sleep(1500);
+            Assert.assertEquals(pool.toString(), 1, pool.getActiveConnections());
+        }
+
+        awaitActiveConnections(pool, 0);
+    }
+
+    private static void awaitActiveConnections(PoolMetrics pool, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.getActiveConnections() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+        }
+        Assert.assertEquals(pool.toString(), expected, pool.getActiveConnections());
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimeRangeTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web. Messages are then posted out of time order: two by account 1 and two by a
+     * newly registered account 2, one of them at the same time as one of account 1's.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+
+        post("/register", "{\"username\": \"user2\", \"password\": \"password\"}");
+        post("/messages", "{\"posted_by\":1, \"message_text\": \"at 300\", \"time_posted_epoch\": 300}");
+        post("/messages", "{\"posted_by\":2, \"message_text\": \"at 100\", \"time_posted_epoch\": 100}");
+        post("/messages", "{\"posted_by\":1, \"message_text\": \"also at 200\", \"time_posted_epoch\": 200}");
+        post("/messages", "{\"posted_by\":2, \"message_text\": \"at 200\", \"time_posted_epoch\": 200}");
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages with since and/or until
+     *
+     * Expected Response:
+     *  Status Code: 200, the messages with since <= time_posted_epoch < until in time order, ties by message_id
+     */
+    @Test
+    public void listingIsFilteredAndInTimeOrder() throws IOException, InterruptedException {
+        Assert.assertEquals(List.of("at 100", "also at 200", "at 200"), texts("/messages?since=100&until=300"));
+        Assert.assertEquals(List.of("at 300", "test message 1"), texts("/messages?since=201"));
+        Assert.assertEquals(List.of("at 100"), texts("/messages?until=200"));
+        Assert.assertEquals(List.of(), texts("/messages?since=200&until=200"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/{account_id}/messages with since and/or until
+     *
+     * Expected Response:
+     *  Status Code: 200, only that account's messages in the range, in time order
+     */
+    @Test
+    public void accountListingIsFilteredAndInTimeOrder() throws IOException, InterruptedException {
+        Assert.assertEquals(List.of("also at 200", "at 300"), texts("/accounts/1/messages?since=0&until=1000"));
+        Assert.assertEquals(List.of("at 100", "at 200"), texts("/accounts/2/messages?until=1000"));
+        Assert.assertEquals(List.of("test message 1"), texts("/accounts/1/messages?since=1000"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages with a bound that is not a number, since after until,
+     * and a range combined with paging
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidRangesAreRejected() throws IOException, InterruptedException {
+        Assert.assertEquals(400, get("/messages?since=yesterday").statusCode());
+        Assert.assertEquals(400, get("/messages?since=300&until=100").statusCode());
+        Assert.assertEquals(400, get("/messages?since=100&limit=2").statusCode());
+        Assert.assertEquals(400, get("/accounts/1/messages?until=x").statusCode());
+    }
+
+    /**
+     * The per-account range listing should be a range scan on the (posted_by, time_posted_epoch, message_id) index
+     * with no sort, so the rows stream in order however many the account has.
+     */
+    @Test
+    public void accountRangeUsesPostedByTimeIndex() throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String plan = explain(MessageDAO.messagesByUserIdInRange(1, 100L, 300L, params), params);
+
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_POSTED_BY_TIME: POSTED_BY = ?1"));
+        Assert.assertTrue(plan, plan.contains("TIME_POSTED_EPOCH >= ?2"));
+        Assert.assertTrue(plan, plan.contains("TIME_POSTED_EPOCH < ?3"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    private String explain(String query, List<Object> params) throws SQLException {
+        try (Connection conn = ConnectionUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private List<String> texts(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = get(path);
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+        return messages.stream().map(Message::getMessage_text).collect(Collectors.toList());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
@@ -0,0 +1,199 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.AccountDAO;
+import DAO.MessageCursor;
+import DAO.MessageDAO;
+import Model.Account;
+import Model.Message;
+import Model.MessagePage;
+import Service.MessageService;
+import Service.TimelineIndex;
+import Util.ConnectionUtil;
+
+/**
+ * Randomized checks that per-user listings served from the in-memory timeline index always match the database.
+ * The index is kept small (few messages in all, short timelines) so eviction and the too-big-to-track path get
+ * exercised.
+ */
+public class TimelineIndexTest {
+    private static final int ACCOUNTS = 5;
+
+    MessageDAO messageDAO;
+    MessageService messageService;
+    List<Integer> accountIds;
+
+    @Before
+    public void setUp() throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        messageDAO = new MessageDAO();
+        messageService = new MessageService(messageDAO, null, new TimelineIndex(60, 20));
+        accountIds = new ArrayList<>();
+        AccountDAO accountDAO = new AccountDAO();
+        accountIds.add(1);
+        for (int i = 1; i < ACCOUNTS; i++) {
+            accountIds.add(accountDAO.createAccount(new Account("timeline" + i, "password")).getAccount_id());
+        }
+    }
+
+    /**
+     * A long random sequence of creates, batches, updates, deletes and listings, comparing every listing and page
+     * with what the database holds at that moment.
+     */
+    @Test
+    public void randomOperationsMatchDatabase() throws SQLException {
+        Random random = new Random(17);
+        for (int step = 0; step < 2000; step++) {
+            randomWrite(random);
+            int accountId = accountIds.get(random.nextInt(ACCOUNTS));
+            List<Message> expected = databaseTimeline(accountId);
+            Assert.assertEquals("step " + step, expected, messageService.getMessagesByUserId(accountId));
+            Assert.assertEquals("step " + step, expected, streamed(accountId));
+
+            int afterId = expected.isEmpty() ? 0 : expected.get(random.nextInt(expected.size())).getMessage_id();
+            int limit = 1 + random.nextInt(5);
+            MessagePage page = messageService.getMessagesPageByUserId(accountId, afterId, limit);
+            List<Message> expectedPage = new ArrayList<>();
+            for (Message message : expected) {
+                if (message.getMessage_id() > afterId && expectedPage.size() < limit) {
+                    expectedPage.add(message);
+                }
+            }
+            Assert.assertEquals("step " + step, expectedPage, page.getMessages());
+        }
+    }
+
+    /**
+     * Random writes and listings from several threads at once; once they are done every account's listing must
+     * match the database.
+     */
+    @Test
+    public void concurrentOperationsMatchDatabase() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long seed = t;
+            workers.add(threads.submit(() -> {
+                Random random = new Random(seed);
+                for (int step = 0; step < 300; step++) {
+                    randomWrite(random);
+                    messageService.getMessagesByUserId(accountIds.get(random.nextInt(ACCOUNTS)));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        threads.shutdown();
+
+        for (int accountId : accountIds) {
+            Assert.assertEquals(databaseTimeline(accountId), messageService.getMessagesByUserId(accountId));
+        }
+    }
+
+    /**
+     * A load runs without holding its account's lock, so a create for the same account goes through while the load
+     * is still reading; the load then answers what it read but does not install it, since the create may be
+     * missing from it, and the next listing loads again.
+     */
+    @Test
+    public void createIsNotBlockedByALoad() throws Exception {
+        TimelineIndex timelineIndex = new TimelineIndex(60, 20);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        TimelineIndex.Loader slowLoader = limit -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return List.of();
+        };
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        Future<List<Message>> listing = threads.submit(() -> timelineIndex.messages(1, slowLoader));
+        Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        Message message = new Message(7, 1, "created", 1L);
+        Future<Message> created = threads.submit(() -> timelineIndex.create(1, () -> message));
+        Assert.assertEquals(message, created.get(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        Assert.assertEquals(List.of(), listing.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(List.of(message), timelineIndex.messages(1, limit -> {
+            loads.incrementAndGet();
+            return List.of(message);
+        }));
+        Assert.assertEquals(2, loads.get());
+        threads.shutdown();
+    }
+
+    private void randomWrite(Random random) throws SQLException {
+        int accountId = accountIds.get(random.nextInt(ACCOUNTS));
+        int maxId = Math.max(1, lastMessageId());
+        switch (random.nextInt(6)) {
+            case 0:
+            case 1:
+                messageService.createMessage(new Message(accountId, "text " + random.nextInt(), random.nextInt(1000)));
+                break;
+            case 2:
+                List<Message> batch = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    batch.add(new Message(accountIds.get(random.nextInt(ACCOUNTS)), "batch " + random.nextInt(), 1L));
+                }
+                messageService.createMessages(batch);
+                break;
+            case 3:
+                messageService.updateMessage(1 + random.nextInt(maxId), "updated " + random.nextInt());
+                break;
+            case 4:
+                messageService.deleteMessageById(1 + random.nextInt(maxId));
+                break;
+            default:
+                // a listing only, which may start tracking the account
+                messageService.getMessagesByUserId(accountId);
+        }
+    }
+
+    private List<Message> databaseTimeline(int accountId) throws SQLException {
+        List<Message> messages = new ArrayList<>(messageDAO.getMessagesByUserId(accountId));
+        messages.sort(Comparator.comparingInt(Message::getMessage_id));
+        return messages;
+    }
+
+    private List<Message> streamed(int accountId) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        try (MessageCursor cursor = messageService.streamMessagesByUserId(accountId)) {
+            Message message;
+            while ((message = cursor.next()) != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private int lastMessageId() throws SQLException {
+        List<Message> all = messageDAO.getAllMessages();
+        int max = 0;
+        for (Message message : all) {
+            max = Math.max(max, message.getMessage_id());
+        }
+        return max;
+    }
+}